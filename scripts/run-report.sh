@@ -0,0 +1,15 @@
+#!/usr/bin/env bash
+# Runs the shaded jar, using the class-data sharing archive from `mvn -Pstartup package`
+# when it is present. C1 only: a report run is too short for C2 to pay off.
+set -euo pipefail
+
+root="$(cd "$(dirname "$0")/.." && pwd)"
+jar="$root/target/morning-market-report-1.0.0.jar"
+archive="$root/target/app-cds.jsa"
+
+jvm_opts=(-XX:TieredStopAtLevel=1 -XX:+UseSerialGC)
+if [[ -f "$archive" ]]; then
+    jvm_opts+=(-XX:SharedArchiveFile="$archive" -Xshare:auto)
+fi
+
+exec java "${jvm_opts[@]}" ${JAVA_OPTS:-} -jar "$jar" "$@"
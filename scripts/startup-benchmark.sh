@@ -0,0 +1,50 @@
+#!/usr/bin/env bash
+# Wall-clock time of an offline report run for each way of launching it:
+# mvn exec:java, the shaded jar, the jar with the CDS archive, and the native
+# image when it has been built. Build first with `mvn -Pstartup package`.
+#   scripts/startup-benchmark.sh [runs]
+set -euo pipefail
+
+root="$(cd "$(dirname "$0")/.." && pwd)"
+runs="${1:-5}"
+jar="$root/target/morning-market-report-1.0.0.jar"
+archive="$root/target/app-cds.jsa"
+native="$root/target/morning-report"
+
+# Replay data with no simulated latency, so the numbers are startup and pipeline cost only
+export DATA_PROVIDER=replay REPLAY_LATENCY_MEDIAN_MS=0 REPLAY_ERROR_RATE=0 CACHE_MAX_MB=0 METRICS_FORMAT=none
+unset GMAIL_USER WORK_EMAIL_LIST SUBSCRIPTIONS_FILE
+
+# Each variant runs in a scratch directory so reports and history stay out of the tree
+work="$(mktemp -d)"
+trap 'rm -rf "$work"' EXIT
+cd "$work"
+
+measure() {
+    local name="$1"; shift
+    local total=0 best=0
+    for ((i = 1; i <= runs; i++)); do
+        rm -rf reports data
+        mkdir -p reports
+        local start end elapsed
+        start=$(date +%s%N)
+        "$@" > /dev/null 2>&1
+        end=$(date +%s%N)
+        elapsed=$(( (end - start) / 1000000 ))
+        total=$(( total + elapsed ))
+        if (( best == 0 || elapsed < best )); then best=$elapsed; fi
+    done
+    printf '%-24s %8d %8d\n' "$name" $(( total / runs )) "$best"
+}
+
+printf '%-24s %8s %8s\n' "launcher" "mean ms" "min ms"
+measure "mvn exec:java" mvn -q -f "$root/pom.xml" exec:java
+measure "java -jar" java -jar "$jar"
+measure "java -jar (C1)" java -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -jar "$jar"
+if [[ -f "$archive" ]]; then
+    measure "java -jar (C1 + AppCDS)" java -XX:TieredStopAtLevel=1 -XX:+UseSerialGC \
+        -XX:SharedArchiveFile="$archive" -Xshare:auto -jar "$jar"
+fi
+if [[ -x "$native" ]]; then
+    measure "native image" "$native"
+fi
@@ -0,0 +1,35 @@
+package com.marketreport;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Network interceptor that assigns a per-host freshness lifetime to provider
+// responses, which usually arrive with no-cache headers. ETag/Last-Modified are
+// left untouched so the OkHttp cache can revalidate conditionally once the TTL expires.
+public class CacheTtlInterceptor implements Interceptor {
+    private final Map<String, Integer> ttlSecondsByHost = new LinkedHashMap<>();
+
+    public CacheTtlInterceptor withTtl(String host, int ttlSeconds) {
+        ttlSecondsByHost.put(host, ttlSeconds);
+        return this;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        Integer ttlSeconds = ttlSecondsByHost.get(chain.request().url().host());
+        if (ttlSeconds == null || ttlSeconds <= 0 || !response.isSuccessful()) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .removeHeader("Expires")
+                .header("Cache-Control", "max-age=" + ttlSeconds)
+                .build();
+    }
+}
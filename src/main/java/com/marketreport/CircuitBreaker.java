@@ -0,0 +1,105 @@
+package com.marketreport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Count-based circuit breaker over the last windowSize outcomes. Once the
+// failure ratio crosses the threshold the breaker opens and callers fail fast
+// for the cooldown; then a single probe is let through, and its outcome
+// either closes the breaker or opens it for another cooldown.
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final boolean[] failedOutcomes;
+    private final int minCalls;
+    private final double failureRatio;
+    private final long cooldownNanos;
+
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name, int windowSize, int minCalls, double failureRatio, long cooldownSeconds) {
+        this.name = name;
+        this.failedOutcomes = new boolean[Math.max(1, windowSize)];
+        this.minCalls = Math.max(1, Math.min(minCalls, failedOutcomes.length));
+        this.failureRatio = failureRatio;
+        this.cooldownNanos = TimeUnit.SECONDS.toNanos(Math.max(0, cooldownSeconds));
+    }
+
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAtNanos < cooldownNanos) {
+                    return false;
+                }
+                logger.info("Circuit for {} half-open, sending a probe", name);
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            default:
+                if (probeInFlight) return false;
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        if (state == State.HALF_OPEN) {
+            logger.info("Circuit for {} closed", name);
+            reset(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            logger.warn("Probe for {} failed, circuit stays open", name);
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minCalls && failures >= failureRatio * recorded) {
+            logger.warn("Circuit for {} opened after {} failures in {} calls; failing fast for {} s",
+                    name, failures, recorded, TimeUnit.NANOSECONDS.toSeconds(cooldownNanos));
+            open();
+        }
+    }
+
+    private void record(boolean failed) {
+        if (recorded == failedOutcomes.length) {
+            if (failedOutcomes[next]) failures--;
+        } else {
+            recorded++;
+        }
+        failedOutcomes[next] = failed;
+        if (failed) failures++;
+        next = (next + 1) % failedOutcomes.length;
+    }
+
+    private void open() {
+        reset(State.OPEN);
+        openedAtNanos = System.nanoTime();
+    }
+
+    private void reset(State newState) {
+        state = newState;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+        probeInFlight = false;
+        Arrays.fill(failedOutcomes, false);
+    }
+}
@@ -3,87 +3,389 @@ package com.marketreport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.activation.DataHandler;
+import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 import javax.mail.*;
+import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeMultipart;
+import javax.mail.util.ByteArrayDataSource;
+import javax.mail.util.SharedFileInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
-public class EmailService {
+public class EmailService implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
-    
+
     private final String gmailUser;
     private final String gmailPassword;
     private final String workEmailList;
 
-    public EmailService() {
-        this.gmailUser = System.getenv("GMAIL_USER");
-        this.gmailPassword = System.getenv("GMAIL_PASSWORD");
-        this.workEmailList = System.getenv("WORK_EMAIL_LIST");
-        
-        if (gmailUser == null || gmailPassword == null || workEmailList == null) {
+    private final String smtpHost;
+    private final int smtpPort;
+    private final boolean smtpAuth;
+    private final boolean smtpStartTls;
+    private final int poolSize;
+    private final int recipientsPerMessage;
+    private final int maxRetries;
+    private final String layout;
+    private final int inlineMaxBytes;
+    private final String attachmentFormat;
+    private final int summaryRows;
+    private final RunMetrics metrics;
+    private final ReportRenderer renderer;
+
+    private Session session;
+    private SmtpTransportPool transportPool;
+    private ExecutorService deliveryExecutor;
+
+    // renderer is shared with the report so summaries reuse its fragments and movers settings
+    public EmailService(RunMetrics metrics, ReportRenderer renderer) {
+        this.metrics = metrics;
+        this.renderer = renderer;
+        this.gmailUser = EnvConfig.getString("GMAIL_USER", null);
+        this.gmailPassword = EnvConfig.getString("GMAIL_PASSWORD", null);
+        this.workEmailList = EnvConfig.getString("WORK_EMAIL_LIST", null);
+
+        // Overridable so delivery can be pointed at a local SMTP stand-in
+        this.smtpHost = EnvConfig.getString("SMTP_HOST", "smtp.gmail.com");
+        this.smtpPort = EnvConfig.getInt("SMTP_PORT", 587);
+        this.smtpAuth = Boolean.parseBoolean(EnvConfig.getString("SMTP_AUTH", "true"));
+        this.smtpStartTls = Boolean.parseBoolean(EnvConfig.getString("SMTP_STARTTLS", "true"));
+        this.poolSize = Math.max(1, EnvConfig.getInt("SMTP_POOL_SIZE", 4));
+        this.recipientsPerMessage = Math.max(1, EnvConfig.getInt("SMTP_RECIPIENTS_PER_MESSAGE", 50));
+        this.maxRetries = Math.max(0, EnvConfig.getInt("SMTP_MAX_RETRIES", 2));
+        // Gmail clips message bodies over about 102 KB
+        this.layout = EnvConfig.getString("EMAIL_LAYOUT", "auto").toLowerCase(Locale.ROOT);
+        this.inlineMaxBytes = Math.max(0, EnvConfig.getInt("EMAIL_INLINE_MAX_KB", 96)) * 1024;
+        this.attachmentFormat = EnvConfig.getString("EMAIL_ATTACHMENT", "html").toLowerCase(Locale.ROOT);
+        this.summaryRows = Math.max(1, EnvConfig.getInt("EMAIL_SUMMARY_ROWS", 10));
+
+        if (!isConfigured() || workEmailList == null) {
             logger.warn("Email credentials not fully configured. Email sending will be skipped.");
         }
     }
 
-    public void sendReport(String htmlContent, List<MarketData> marketData, List<NewsHeadline> headlines) {
-        if (!isConfigured()) {
+    // Streams the body from a rendered report file instead of holding it in memory
+    public void sendReport(File reportFile, MarketDataBatch marketData, List<NewsHeadline> headlines) {
+        sendReport(workEmailList, new FileDataSource(reportFile), reportFile.length(), marketData, headlines);
+    }
+
+    // Sends a personalised report to a single subscriber instead of WORK_EMAIL_LIST
+    public void sendPersonalReport(String recipient, File reportFile, MarketDataBatch marketData,
+                                   List<NewsHeadline> headlines) {
+        sendReport(recipient, new FileDataSource(reportFile), reportFile.length(), marketData, headlines);
+    }
+
+    // Every send makes the same layout decision: reports over EMAIL_INLINE_MAX_KB (or every
+    // report with EMAIL_LAYOUT=attachment) go out as a short summary with the full report
+    // gzipped as an attachment
+    private void sendReport(String recipientList, DataSource html, long size, MarketDataBatch marketData,
+                            List<NewsHeadline> headlines) {
+        boolean attach = layout.equals("attachment") || (layout.equals("auto") && size > inlineMaxBytes);
+        if (!attach) {
+            sendReport(recipientList, message -> {
+                message.setDataHandler(new DataHandler(html));
+                message.setHeader("Content-Type", "text/html; charset=utf-8");
+            });
+            return;
+        }
+        logger.info("Report is {} KB, sending a summary with the full report as a {} attachment",
+                size / 1024, attachmentFormat);
+        sendReport(recipientList, message -> message.setContent(summaryWithAttachment(html, marketData, headlines)));
+    }
+
+    private MimeMultipart summaryWithAttachment(DataSource html, MarketDataBatch marketData,
+                                                List<NewsHeadline> headlines) throws MessagingException, IOException {
+        LocalDateTime now = LocalDateTime.now();
+        String stem = "morning_report_" + now.format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        boolean csv = attachmentFormat.equals("csv");
+        String attachmentName = stem + (csv ? ".csv.gz" : ".html.gz");
+
+        ByteArrayOutputStream summary = new ByteArrayOutputStream(8 * 1024);
+        try (HtmlWriter out = new HtmlWriter(summary)) {
+            renderer.writeEmailSummary(out, now, marketData, headlines, summaryRows, attachmentName);
+        }
+        MimeBodyPart body = new MimeBodyPart();
+        body.setDataHandler(new DataHandler(new ByteArrayDataSource(summary.toByteArray(), "text/html; charset=utf-8")));
+        body.setHeader("Content-Type", "text/html; charset=utf-8");
+
+        MimeBodyPart attachment = new MimeBodyPart();
+        attachment.setDataHandler(new DataHandler(new ByteArrayDataSource(
+                gzip(csv ? new ByteArrayInputStream(toCsv(marketData)) : html.getInputStream()),
+                "application/gzip")));
+        attachment.setFileName(attachmentName);
+        attachment.setDisposition(Part.ATTACHMENT);
+
+        MimeMultipart multipart = new MimeMultipart("mixed");
+        multipart.addBodyPart(body);
+        multipart.addBodyPart(attachment);
+        return multipart;
+    }
+
+    private static byte[] toCsv(MarketDataBatch marketData) {
+        StringBuilder csv = new StringBuilder(64 + marketData.size() * 96);
+        csv.append("symbol,name,previous_close,price,change,change_percent,volume,")
+           .append("pre_market_price,pre_market_change,pre_market_change_percent\n");
+        for (int row = 0; row < marketData.size(); row++) {
+            csv.append(csvField(marketData.symbol[row])).append(',').append(csvField(marketData.name[row])).append(',')
+               .append(marketData.previousClose[row]).append(',').append(marketData.currentPrice[row]).append(',')
+               .append(marketData.change[row]).append(',').append(marketData.changePercent[row]).append(',')
+               .append(marketData.volume[row]).append(',').append(marketData.preMarketPrice[row]).append(',')
+               .append(marketData.preMarketChange[row]).append(',').append(marketData.preMarketChangePercent[row])
+               .append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static byte[] gzip(InputStream data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(8 * 1024);
+        try (InputStream in = data;
+             GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            in.transferTo(out);
+        }
+        return compressed.toByteArray();
+    }
+
+    // Builds and encodes a report message without connecting, so a training run loads the mail classes
+    public void warmUp(File reportFile) throws MessagingException, IOException {
+        MimeMessage message = new MimeMessage(getSession());
+        message.setFrom(new InternetAddress("report@example.com"));
+        message.setSubject("Morning Market Report");
+        message.setDataHandler(new DataHandler(new FileDataSource(reportFile)));
+        message.setHeader("Content-Type", "text/html; charset=utf-8");
+        message.saveChanges();
+        message.writeTo(OutputStream.nullOutputStream());
+        getSession().getTransport("smtp");
+    }
+
+    private interface ContentSetter {
+        void apply(MimeMessage message) throws MessagingException, IOException;
+    }
+
+    private void sendReport(String recipientList, ContentSetter content) {
+        if (!isConfigured() || recipientList == null) {
             logger.warn("Email not configured, skipping email send");
             return;
         }
 
-        try {
+        try (RunMetrics.Timing timing = metrics.time("email.send")) {
             logger.info("Sending email report...");
-            
-            // Setup mail properties
-            Properties props = new Properties();
-            props.put("mail.smtp.host", "smtp.gmail.com");
-            props.put("mail.smtp.port", "587");
-            props.put("mail.smtp.auth", "true");
-            props.put("mail.smtp.starttls.enable", "true");
-            props.put("mail.smtp.ssl.trust", "smtp.gmail.com");
-
-            // Create session
-            Session session = Session.getInstance(props, new Authenticator() {
-                @Override
-                protected PasswordAuthentication getPasswordAuthentication() {
-                    return new PasswordAuthentication(gmailUser, gmailPassword);
-                }
-            });
+            long startNanos = System.nanoTime();
 
-            // Create message
-            MimeMessage message = new MimeMessage(session);
+            // Build the message once; every recipient group reuses it
+            MimeMessage message = new MimeMessage(getSession());
             message.setFrom(new InternetAddress(gmailUser));
-            
-            // Add recipients (split by comma)
-            String[] recipients = workEmailList.split(",");
-            for (String recipient : recipients) {
-                message.addRecipient(Message.RecipientType.TO, 
-                    new InternetAddress(recipient.trim()));
-            }
 
             // Set subject
-            String subject = String.format("🌅 Morning Market Report - %s", 
+            String subject = String.format("🌅 Morning Market Report - %s",
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")));
-            message.setSubject(subject);
+            message.setSubject(subject, "UTF-8");
+
+            // Add recipients (split by comma). Small lists keep the shared TO header; larger
+            // distribution lists are addressed to the sender and delivered by envelope only.
+            List<Address> recipients = parseRecipients(recipientList);
+            if (recipients.size() <= recipientsPerMessage) {
+                message.setRecipients(Message.RecipientType.TO, recipients.toArray(new Address[0]));
+            } else {
+                message.setRecipient(Message.RecipientType.TO, new InternetAddress(gmailUser));
+            }
 
             // Set content
-            message.setContent(htmlContent, "text/html; charset=utf-8");
+            content.apply(message);
+            message.saveChanges();
+
+            // Encode once to a temporary file: a message parsed back from it is written out verbatim
+            // with its body read from disk, so recipient groups and retries neither re-run the
+            // transfer encoding nor hold the message in memory
+            List<Address> failed;
+            File encoded = File.createTempFile("report-message", ".eml");
+            try {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(encoded))) {
+                    message.writeTo(out);
+                }
+                logger.info("Encoded a {} KB message for {} recipients", encoded.length() / 1024, recipients.size());
+                SharedFileInputStream in = new SharedFileInputStream(encoded);
+                try {
+                    failed = deliver(new MimeMessage(getSession(), in), recipients);
+                } finally {
+                    in.close();
+                }
+            } finally {
+                if (!encoded.delete()) {
+                    logger.debug("Could not delete {}", encoded);
+                }
+            }
+
+            long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            int delivered = recipients.size() - failed.size();
+            logger.info("Email report sent to {} of {} recipients in {} ms ({} recipients/s, {} connections opened)",
+                    delivered, recipients.size(), elapsedMillis, delivered * 1000L / elapsedMillis,
+                    transportPool.connectionsOpened());
+
+            if (!failed.isEmpty()) {
+                logger.warn("Email delivery failed for {} recipients: {}", failed.size(), failed);
+            }
+            if (delivered == 0) {
+                throw new MessagingException("No recipients accepted the report");
+            }
+            timing.success();
 
-            // Send email
-            Transport.send(message);
-            
-            logger.info("Email report sent successfully to {} recipients", recipients.length);
-            
         } catch (Exception e) {
             logger.error("Failed to send email report", e);
             throw new RuntimeException("Email sending failed", e);
         }
     }
 
+    // Sends in parallel recipient groups over pooled connections; returns recipients that never succeeded
+    private List<Address> deliver(MimeMessage message, List<Address> recipients) throws InterruptedException {
+        // Addresses the server rejected outright; these are reported but never retried
+        List<Address> rejected = Collections.synchronizedList(new ArrayList<>());
+
+        List<Future<List<Address>>> groups = new ArrayList<>();
+        for (int i = 0; i < recipients.size(); i += recipientsPerMessage) {
+            List<Address> group = recipients.subList(i, Math.min(i + recipientsPerMessage, recipients.size()));
+            groups.add(deliveryExecutor.submit(() -> sendGroup(message, group, rejected)));
+        }
+
+        List<Address> retry = new ArrayList<>();
+        for (Future<List<Address>> group : groups) {
+            try {
+                retry.addAll(group.get());
+            } catch (ExecutionException e) {
+                logger.warn("Recipient group failed", e.getCause());
+            }
+        }
+
+        // Retry only the recipients that failed, one at a time
+        for (int attempt = 1; attempt <= maxRetries && !retry.isEmpty(); attempt++) {
+            logger.info("Retrying {} failed recipients (attempt {} of {})", retry.size(), attempt, maxRetries);
+            metrics.addRetries("email.send", retry.size());
+            List<Future<List<Address>>> singles = new ArrayList<>();
+            for (Address address : retry) {
+                singles.add(deliveryExecutor.submit(() -> sendGroup(message, Collections.singletonList(address), rejected)));
+            }
+            retry = new ArrayList<>();
+            for (Future<List<Address>> single : singles) {
+                try {
+                    retry.addAll(single.get());
+                } catch (ExecutionException e) {
+                    logger.warn("Recipient retry failed", e.getCause());
+                }
+            }
+        }
+        retry.addAll(rejected);
+        return retry;
+    }
+
+    private List<Address> sendGroup(MimeMessage message, List<Address> group, List<Address> rejected)
+            throws InterruptedException {
+        Transport transport;
+        try {
+            transport = transportPool.borrow();
+        } catch (MessagingException e) {
+            logger.warn("Could not connect to {}:{}", smtpHost, smtpPort, e);
+            return new ArrayList<>(group);
+        }
+
+        try {
+            transport.sendMessage(message, group.toArray(new Address[0]));
+            transportPool.release(transport);
+            return Collections.emptyList();
+        } catch (SendFailedException e) {
+            // The connection is still usable; only the rejected addresses need another attempt
+            transportPool.release(transport);
+            List<Address> failed = new ArrayList<>();
+            if (e.getValidUnsentAddresses() != null) {
+                failed.addAll(Arrays.asList(e.getValidUnsentAddresses()));
+            }
+            if (e.getInvalidAddresses() != null) {
+                rejected.addAll(Arrays.asList(e.getInvalidAddresses()));
+            }
+            return failed;
+        } catch (MessagingException | RuntimeException e) {
+            logger.warn("Send failed for group of {} recipients", group.size(), e);
+            transportPool.invalidate(transport);
+            return new ArrayList<>(group);
+        }
+    }
+
+    private List<Address> parseRecipients(String recipientList) throws AddressException {
+        List<Address> recipients = new ArrayList<>();
+        for (String recipient : recipientList.split(",")) {
+            if (!recipient.trim().isEmpty()) {
+                recipients.add(new InternetAddress(recipient.trim()));
+            }
+        }
+        return recipients;
+    }
+
+    private synchronized Session getSession() {
+        if (session == null) {
+            // Setup mail properties
+            Properties props = new Properties();
+            props.put("mail.smtp.host", smtpHost);
+            props.put("mail.smtp.port", String.valueOf(smtpPort));
+            props.put("mail.smtp.auth", String.valueOf(smtpAuth));
+            props.put("mail.smtp.starttls.enable", String.valueOf(smtpStartTls));
+            props.put("mail.smtp.ssl.trust", smtpHost);
+            // Deliver to the accepted recipients even if the server rejects some of a group
+            props.put("mail.smtp.sendpartial", "true");
+
+            // Create session
+            session = Session.getInstance(props, new Authenticator() {
+                @Override
+                protected PasswordAuthentication getPasswordAuthentication() {
+                    return new PasswordAuthentication(gmailUser, gmailPassword);
+                }
+            });
+            transportPool = new SmtpTransportPool(session, poolSize);
+            // Each recipient group waits for a pooled connection, so virtual threads need no sizing
+            deliveryExecutor = TaskThreads.newExecutor("smtp-delivery", poolSize);
+        }
+        return session;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (transportPool != null) {
+            transportPool.close();
+        }
+        if (deliveryExecutor != null) {
+            deliveryExecutor.shutdownNow();
+        }
+    }
+
     private boolean isConfigured() {
-        return gmailUser != null && gmailPassword != null && workEmailList != null;
+        return gmailUser != null && (!smtpAuth || gmailPassword != null);
     }
 }
@@ -0,0 +1,41 @@
+package com.marketreport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Small helpers for reading optional numeric settings from the environment.
+// A JVM system property of the same name takes precedence, so tests can
+// configure a component in-process.
+public final class EnvConfig {
+    private static final Logger logger = LoggerFactory.getLogger(EnvConfig.class);
+
+    private EnvConfig() {
+    }
+
+    public static String getString(String name, String defaultValue) {
+        String value = System.getProperty(name, System.getenv(name));
+        return (value == null || value.trim().isEmpty()) ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String name, int defaultValue) {
+        String value = getString(name, null);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value for {}: '{}', using {}", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static double getDouble(String name, double defaultValue) {
+        String value = getString(name, null);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value for {}: '{}', using {}", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
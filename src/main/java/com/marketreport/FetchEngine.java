@@ -0,0 +1,97 @@
+package com.marketreport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+// Runs fetch tasks on a bounded pool, or one virtual thread each on JDK 21,
+// throttled by a shared token bucket and capped per host. Failures are
+// isolated per key and results keep input order. No task outlives its
+// fetchAll call: interrupting the caller cancels every outstanding task.
+public class FetchEngine implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FetchEngine.class);
+
+    public interface Task<K, T> {
+        T fetch(K key) throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final int maxConcurrentPerHost;
+    private final ConcurrentHashMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    public FetchEngine(int threads, double requestsPerSecond, int burst, int maxConcurrentPerHost) {
+        // threads only applies to platform threads; with virtual threads every fetch gets its own
+        this.executor = TaskThreads.newExecutor("fetch", Math.max(1, threads));
+        this.rateLimiter = new TokenBucketRateLimiter(requestsPerSecond, burst);
+        this.maxConcurrentPerHost = Math.max(1, maxConcurrentPerHost);
+    }
+
+    public <K, T> List<T> fetchAll(String host, List<K> keys, Task<K, T> task) throws InterruptedException {
+        Semaphore permits = permits(host);
+
+        List<Future<T>> futures = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            futures.add(executor.submit(() -> {
+                permits.acquire();
+                try {
+                    rateLimiter.acquire();
+                    return task.fetch(key);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        List<T> results = new ArrayList<>(keys.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                T result = futures.get(i).get();
+                if (result != null) {
+                    results.add(result);
+                }
+            } catch (ExecutionException e) {
+                logger.warn("Error fetching data for " + keys.get(i), e.getCause());
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    // Admits one extra request to host from inside a running task (a hedge) only if a
+    // host permit and a rate token are free right now. Never blocks, so a task can't
+    // wait on permits its own host's tasks are holding. Pair with release(host).
+    public boolean tryAcquire(String host) {
+        Semaphore permits = permits(host);
+        if (!permits.tryAcquire()) {
+            return false;
+        }
+        if (!rateLimiter.tryAcquire()) {
+            permits.release();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(String host) {
+        permits(host).release();
+    }
+
+    private Semaphore permits(String host) {
+        return hostPermits.computeIfAbsent(host, h -> new Semaphore(maxConcurrentPerHost));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,104 @@
+package com.marketreport;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Streaming headline selection: scored articles pass through near-duplicate
+// clustering and then into a bounded top-K heap. Only the highest-scoring
+// copy of a syndicated story can be retained. Safe for concurrent pages.
+public class HeadlineSelector {
+    private final TopKHeap<NewsHeadline> topHeadlines;
+    private final NearDuplicateIndex duplicates;
+    // Both directions between retained headlines and their clusters, so replacing
+    // or evicting a representative is a lookup rather than a scan
+    private final Map<NewsHeadline, Integer> retainedClusters = new IdentityHashMap<>();
+    private final Map<Integer, NewsHeadline> retainedByCluster = new HashMap<>();
+    private int articlesSeen;
+    private int duplicatesDropped;
+
+    // A negative dedupDistance disables near-duplicate detection
+    public HeadlineSelector(int topK, int dedupDistance) {
+        this.topHeadlines = new TopKHeap<>(topK, Comparator.comparingInt((NewsHeadline h) -> h.relevanceScore),
+                this::forget);
+        this.duplicates = dedupDistance >= 0 ? new NearDuplicateIndex(dedupDistance) : null;
+    }
+
+    // Returns true if the article entered the current top K
+    public synchronized boolean offer(String title, String description, String source, String publishedAt,
+                                      String url, int relevanceScore) {
+        articlesSeen++;
+        if (cannotEnter(relevanceScore)) {
+            return false;
+        }
+
+        int cluster = -1;
+        if (duplicates != null) {
+            cluster = duplicates.cluster(NearDuplicateIndex.fingerprint(title, description));
+            if (relevanceScore <= duplicates.bestScore(cluster)) {
+                duplicatesDropped++;
+                return false; // a copy of this story scored at least as well
+            }
+            duplicates.setBestScore(cluster, relevanceScore);
+
+            // The new copy replaces the cluster's current representative
+            NewsHeadline replaced = retainedByCluster.get(cluster);
+            if (replaced != null) {
+                topHeadlines.remove(replaced);
+                forget(replaced);
+                duplicatesDropped++;
+            }
+        }
+
+        NewsHeadline headline = new NewsHeadline(title, description, source, publishedAt, url, relevanceScore);
+        if (!topHeadlines.offer(headline)) {
+            return false;
+        }
+        if (cluster >= 0) {
+            retainedClusters.put(headline, cluster);
+            retainedByCluster.put(cluster, headline);
+        }
+        return true;
+    }
+
+    private void forget(NewsHeadline headline) {
+        Integer cluster = retainedClusters.remove(headline);
+        if (cluster != null) {
+            retainedByCluster.remove(cluster);
+        }
+    }
+
+    // True once the heap is full and its floor already reaches maxScore
+    public synchronized boolean isSaturated(int maxScore) {
+        NewsHeadline floor = topHeadlines.floor();
+        return topHeadlines.isFull() && floor.relevanceScore >= maxScore;
+    }
+
+    public synchronized int articlesSeen() {
+        return articlesSeen;
+    }
+
+    public synchronized int duplicatesDropped() {
+        return duplicatesDropped;
+    }
+
+    public synchronized int size() {
+        return topHeadlines.size();
+    }
+
+    public synchronized boolean isFull() {
+        return topHeadlines.isFull();
+    }
+
+    // Best first
+    public synchronized List<NewsHeadline> top() {
+        return topHeadlines.toSortedList();
+    }
+
+    private boolean cannotEnter(int relevanceScore) {
+        NewsHeadline floor = topHeadlines.isFull() ? topHeadlines.floor() : null;
+        return floor != null && relevanceScore <= floor.relevanceScore;
+    }
+}
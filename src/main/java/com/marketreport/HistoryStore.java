@@ -0,0 +1,306 @@
+package com.marketreport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Append-only columnar store of daily snapshots. The symbols.txt dictionary
+// gives each symbol a dense id, and each recorded day is one segment file,
+// <yyyy-MM-dd>.col, holding two primitive columns indexed by id: closes as
+// 8-byte doubles, then volumes as 8-byte longs, little-endian, after an 8-byte
+// row count. Symbols not quoted that day read as NaN and -1. A run writes a
+// single file however large the universe, and readers map the last few
+// segments once for every symbol.
+public class HistoryStore {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryStore.class);
+
+    private static final String DICTIONARY_FILE = "symbols.txt";
+    private static final String SEGMENT_EXTENSION = ".col";
+    private static final int VALUE_BYTES = 8;
+    private static final int HEADER_BYTES = 8;
+    // Segments kept mapped between windows; the report reads at most 51 days (50 bars)
+    private static final int MAPPED_SEGMENTS = 64;
+
+    private final Path directory;
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    // Recorded days, oldest first, and the most recently used segment mappings. An
+    // evicted mapping is released once no window refers to it any more.
+    private final List<LocalDate> days = new ArrayList<>();
+    private final Map<LocalDate, ByteBuffer> mapped = new LinkedHashMap<LocalDate, ByteBuffer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LocalDate, ByteBuffer> eldest) {
+            return size() > MAPPED_SEGMENTS;
+        }
+    };
+
+    public HistoryStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        Path dictionary = directory.resolve(DICTIONARY_FILE);
+        if (Files.exists(dictionary)) {
+            List<String> symbols = readDictionary(dictionary);
+            for (int id = 0; id < symbols.size(); id++) {
+                symbolIds.put(symbols.get(id), id);
+            }
+        }
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "*" + SEGMENT_EXTENSION)) {
+            for (Path segment : segments) {
+                String name = segment.getFileName().toString();
+                days.add(LocalDate.parse(name.substring(0, name.length() - SEGMENT_EXTENSION.length())));
+            }
+        }
+        Collections.sort(days);
+    }
+
+    // Records one row per symbol for the given day. Re-running on the same day
+    // rewrites that day's segment, keeping the rows of symbols not in this snapshot.
+    public synchronized void append(LocalDate day, List<MarketData> snapshot) throws IOException {
+        List<String> newSymbols = new ArrayList<>();
+        for (MarketData data : snapshot) {
+            if (!symbolIds.containsKey(data.symbol)) {
+                symbolIds.put(data.symbol, symbolIds.size());
+                newSymbols.add(data.symbol);
+            }
+        }
+        // New ids are durable before any segment refers to them, so a crash in between
+        // can't hand the same id to another symbol on the next run
+        appendToDictionary(newSymbols);
+
+        int rows = symbolIds.size();
+        double[] closes = new double[rows];
+        long[] volumes = new long[rows];
+        Arrays.fill(closes, Double.NaN);
+        Arrays.fill(volumes, -1L);
+        if (days.contains(day)) {
+            ByteBuffer existing = map(segmentFile(day));
+            for (int id = 0; id < Math.min(rows, existing.getLong(0)); id++) {
+                closes[id] = Window.close(existing, id);
+                volumes[id] = Window.volume(existing, id);
+            }
+        }
+        for (MarketData data : snapshot) {
+            int id = symbolIds.get(data.symbol);
+            closes[id] = data.currentPrice;
+            volumes[id] = data.volume;
+        }
+        writeSegment(day, closes, volumes);
+        logger.info("Recorded {} symbols for {} in history store", snapshot.size(), day);
+    }
+
+    // Maps the last bars + 1 recorded days, enough for changes and averages over 'bars' sessions
+    public synchronized Window window(int bars) throws IOException {
+        int from = Math.max(0, days.size() - bars - 1);
+        List<ByteBuffer> segments = new ArrayList<>(days.size() - from);
+        List<LocalDate> segmentDays = new ArrayList<>(days.size() - from);
+        for (LocalDate day : days.subList(from, days.size())) {
+            ByteBuffer segment = mapped.get(day);
+            if (segment == null) {
+                segment = map(segmentFile(day));
+                mapped.put(day, segment);
+            }
+            segments.add(segment);
+            segmentDays.add(day);
+        }
+        return new Window(segments.toArray(new ByteBuffer[0]), segmentDays, new HashMap<>(symbolIds));
+    }
+
+    private void appendToDictionary(List<String> newSymbols) throws IOException {
+        if (newSymbols.isEmpty()) return;
+        StringBuilder lines = new StringBuilder();
+        for (String symbol : newSymbols) {
+            lines.append(symbol).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve(DICTIONARY_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+    }
+
+    // Drops a partial last line left by a crash mid-append, so the next entry doesn't run into it
+    private static List<String> readDictionary(Path dictionary) throws IOException {
+        byte[] bytes = Files.readAllBytes(dictionary);
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--;
+        }
+        if (end < bytes.length) {
+            logger.warn("Discarding incomplete history dictionary entry");
+            try (FileChannel channel = FileChannel.open(dictionary, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+        }
+        List<String> symbols = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < end; i++) {
+            if (bytes[i] == '\n') {
+                symbols.add(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        return symbols;
+    }
+
+    // Written to a temporary file and renamed, so readers never see a half-written day
+    private void writeSegment(LocalDate day, double[] closes, long[] volumes) throws IOException {
+        int rows = closes.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + rows * 2 * VALUE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(rows);
+        for (double close : closes) {
+            buffer.putDouble(close);
+        }
+        for (long volume : volumes) {
+            buffer.putLong(volume);
+        }
+        buffer.flip();
+
+        Path target = segmentFile(day);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        mapped.remove(day);
+        if (!days.contains(day)) {
+            days.add(day);
+            Collections.sort(days);
+        }
+    }
+
+    private Path segmentFile(LocalDate day) {
+        return directory.resolve(day + SEGMENT_EXTENSION);
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    // The last few recorded days, mapped once. Reads are absolute, so one window
+    // can be shared by the threads of a parallel pass.
+    public static final class Window {
+        private final ByteBuffer[] segments;
+        private final List<LocalDate> days;
+        private final Map<String, Integer> symbolIds;
+
+        Window(ByteBuffer[] segments, List<LocalDate> days, Map<String, Integer> symbolIds) {
+            this.segments = segments;
+            this.days = days;
+            this.symbolIds = symbolIds;
+        }
+
+        public int size() {
+            return segments.length;
+        }
+
+        // One symbol's rows from the first day it was recorded in the window; null if it never was
+        public Series series(String symbol) {
+            Integer id = symbolIds.get(symbol);
+            if (id == null) {
+                return null;
+            }
+            for (int start = 0; start < segments.length; start++) {
+                if (!Double.isNaN(close(segments[start], id))) {
+                    return new Series(this, id, start);
+                }
+            }
+            return null;
+        }
+
+        private static double close(ByteBuffer segment, int id) {
+            return id < segment.getLong(0) ? segment.getDouble(HEADER_BYTES + id * VALUE_BYTES) : Double.NaN;
+        }
+
+        private static long volume(ByteBuffer segment, int id) {
+            long rows = segment.getLong(0);
+            return id < rows ? segment.getLong(HEADER_BYTES + (int) (rows + id) * VALUE_BYTES) : -1L;
+        }
+    }
+
+    // Read-only view over one symbol's rows in a window, oldest day first. Days
+    // the symbol wasn't quoted read as a NaN close and a volume of -1.
+    public static final class Series {
+        private final Window window;
+        private final int id;
+        private final int start;
+        private final int size;
+
+        Series(Window window, int id, int start) {
+            this.window = window;
+            this.id = id;
+            this.start = start;
+            this.size = window.segments.length - start;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long epochDay(int index) {
+            return window.days.get(start + index).toEpochDay();
+        }
+
+        public double close(int index) {
+            return Window.close(window.segments[start + index], id);
+        }
+
+        public long volume(int index) {
+            return Window.volume(window.segments[start + index], id);
+        }
+
+        // Percent change of the latest close versus the close 'bars' rows earlier, NaN if too short
+        public double changePercent(int bars) {
+            if (size <= bars) {
+                return Double.NaN;
+            }
+            double base = close(size - 1 - bars);
+            return base == 0 ? Double.NaN : (close(size - 1) / base - 1) * 100;
+        }
+
+        // Latest volume relative to the average of the preceding 'bars' rows, NaN if too short
+        public double volumeRatio(int bars) {
+            if (size <= bars || volume(size - 1) < 0) {
+                return Double.NaN;
+            }
+            long total = 0;
+            int quoted = 0;
+            for (int i = size - 1 - bars; i < size - 1; i++) {
+                long volume = volume(i);
+                if (volume >= 0) {
+                    total += volume;
+                    quoted++;
+                }
+            }
+            return total == 0 ? Double.NaN : volume(size - 1) / (total / (double) quoted);
+        }
+    }
+}
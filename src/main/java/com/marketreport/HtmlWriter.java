@@ -0,0 +1,204 @@
+package com.marketreport;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// Buffered UTF-8 writer for report output. Static markup is written as
+// pre-encoded byte fragments, text is encoded in place and numbers are
+// formatted as fixed-point digits, so rendering a row allocates nothing
+// (short of a rare exact rounding of a value sitting on a tie).
+public class HtmlWriter implements Closeable, Flushable {
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L};
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    // Below 1e9 the scaled product is within 1e-6 of the scaled decimal form
+    private static final double MAX_FAST_SCALED = 1e9;
+    private static final double TIE_TOLERANCE = 1e-6;
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+    private long bytesWritten;
+
+    public HtmlWriter(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public HtmlWriter(WritableByteChannel channel) {
+        this(Channels.newOutputStream(channel), DEFAULT_BUFFER_SIZE);
+    }
+
+    public HtmlWriter(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[Math.max(64, bufferSize)];
+    }
+
+    public static byte[] fragment(String markup) {
+        return markup.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public long bytesWritten() {
+        return bytesWritten + position;
+    }
+
+    public HtmlWriter write(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                bytesWritten += bytes.length;
+                return this;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return this;
+    }
+
+    public HtmlWriter ascii(char c) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) c;
+        return this;
+    }
+
+    public HtmlWriter text(CharSequence text) throws IOException {
+        return text(text, 0, text.length());
+    }
+
+    public HtmlWriter text(CharSequence text, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                ensure(1);
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensure(4);
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                ensure(1);
+                buffer[position++] = (byte) '?';
+            } else {
+                ensure(3);
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    public HtmlWriter number(long value) throws IOException {
+        ensure(20);
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                return text(Long.toString(value));
+            }
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        position = end;
+        return this;
+    }
+
+    // Same output as String.format("%.Nf")
+    public HtmlWriter fixed(double value, int decimals) throws IOException {
+        return fixed(value, decimals, false);
+    }
+
+    // Same output as String.format("%+.Nf")
+    public HtmlWriter signedFixed(double value, int decimals) throws IOException {
+        return fixed(value, decimals, true);
+    }
+
+    private HtmlWriter fixed(double value, int decimals, boolean forceSign) throws IOException {
+        if (Double.isNaN(value)) {
+            return text("NaN");
+        }
+        // The sign comes from the value, not the rounded digits: -0.001 prints as -0.00
+        if (Double.doubleToRawLongBits(value) < 0) {
+            ascii('-');
+        } else if (forceSign) {
+            ascii('+');
+        }
+        if (Double.isInfinite(value)) {
+            return text("Infinity");
+        }
+        long scale = POWERS_OF_TEN[decimals];
+        long units = roundHalfUp(Math.abs(value), decimals);
+        number(units / scale);
+        if (decimals > 0) {
+            ensure(decimals + 1);
+            buffer[position++] = '.';
+            long fraction = units % scale;
+            for (int i = decimals - 1; i >= 0; i--) {
+                buffer[position + i] = (byte) ('0' + (fraction % 10));
+                fraction /= 10;
+            }
+            position += decimals;
+        }
+        return this;
+    }
+
+    // magnitude * 10^decimals rounded half up on the shortest decimal form of the
+    // double, as String.format rounds: 1.005 is 1.00499999999999989... in binary
+    // but formats as 1.01. Away from a tie the binary product rounds the same way;
+    // near one, or where the product has no fraction bits to spare, the decimal
+    // form is rounded exactly.
+    private static long roundHalfUp(double magnitude, int decimals) {
+        double scaled = magnitude * POWERS_OF_TEN[decimals];
+        if (scaled < MAX_FAST_SCALED && Math.abs(scaled - Math.floor(scaled) - 0.5) > TIE_TOLERANCE) {
+            return Math.round(scaled);
+        }
+        return new BigDecimal(Double.toString(magnitude)).setScale(decimals, RoundingMode.HALF_UP)
+                .unscaledValue().longValue();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.length - position < bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            bytesWritten += position;
+            position = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -0,0 +1,120 @@
+package com.marketreport;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+// The one OkHttp client shared by every provider, built on first use so replay
+// runs never open the cache or start a dispatcher. Connections are pooled and
+// kept alive across the whole run, HTTP/2 is negotiated over TLS where the
+// server offers it (so a host's calls share one multiplexed connection), and
+// responses are requested gzipped and decoded transparently. All clients in the
+// process read and write through Okio's shared segment pool, so body buffers
+// are recycled rather than allocated.
+public class HttpClientProvider implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientProvider.class);
+
+    private final RunMetrics metrics;
+    private final int maxRequests;
+    private final int maxRequestsPerHost;
+    private final int poolMaxIdle;
+    private final int poolKeepAliveSeconds;
+    private final boolean http2;
+    private final boolean compression;
+    private OkHttpClient client;
+    private Cache cache;
+
+    public HttpClientProvider(RunMetrics metrics, int maxRequests, int maxRequestsPerHost, int poolMaxIdle,
+                              int poolKeepAliveSeconds, boolean http2, boolean compression) {
+        this.metrics = metrics;
+        this.maxRequests = Math.max(1, maxRequests);
+        this.maxRequestsPerHost = Math.max(1, maxRequestsPerHost);
+        this.poolMaxIdle = Math.max(0, poolMaxIdle);
+        this.poolKeepAliveSeconds = Math.max(1, poolKeepAliveSeconds);
+        this.http2 = http2;
+        this.compression = compression;
+    }
+
+    // Provider calls run async so they can be hedged; leave room for one hedge per call
+    public static HttpClientProvider fromEnv(RunMetrics metrics, int fetchMaxPerHost) {
+        int perHost = Math.max(1, fetchMaxPerHost) * 2;
+        return new HttpClientProvider(metrics,
+                EnvConfig.getInt("HTTP_MAX_REQUESTS", 64),
+                EnvConfig.getInt("HTTP_MAX_REQUESTS_PER_HOST", perHost),
+                EnvConfig.getInt("HTTP_POOL_MAX_IDLE", perHost),
+                EnvConfig.getInt("HTTP_POOL_KEEP_ALIVE_SECONDS", 300),
+                Boolean.parseBoolean(EnvConfig.getString("HTTP2", "true")),
+                Boolean.parseBoolean(EnvConfig.getString("HTTP_COMPRESSION", "true")));
+    }
+
+    public synchronized OkHttpClient client() {
+        if (client == null) {
+            client = build();
+        }
+        return client;
+    }
+
+    private OkHttpClient build() {
+        Dispatcher dispatcher = new Dispatcher(TaskThreads.newExecutor("okhttp-dispatch", 0));
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        cache = createCache();
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(poolMaxIdle, poolKeepAliveSeconds, TimeUnit.SECONDS))
+                .protocols(http2 ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : Collections.singletonList(Protocol.HTTP_1_1))
+                .cache(cache)
+                .eventListenerFactory(metrics.httpListener())
+                .addNetworkInterceptor(new CacheTtlInterceptor()
+                        .withTtl(YahooMarketDataProvider.HOST, EnvConfig.getInt("CACHE_TTL_QUOTES_SECONDS", 300))
+                        .withTtl(NewsApiProvider.HOST, EnvConfig.getInt("CACHE_TTL_NEWS_SECONDS", 900)));
+        if (!compression) {
+            // OkHttp only asks for gzip when the request doesn't name an encoding itself
+            builder.addInterceptor(chain -> chain.proceed(chain.request().newBuilder()
+                    .header("Accept-Encoding", "identity")
+                    .build()));
+        }
+        logger.info("HTTP client ready: {} requests ({} per host), {} idle connections kept {}s, {}, compression {}",
+                maxRequests, maxRequestsPerHost, poolMaxIdle, poolKeepAliveSeconds,
+                http2 ? "HTTP/2 with HTTP/1.1 fallback" : "HTTP/1.1 only", compression ? "on" : "off");
+        return builder.build();
+    }
+
+    private static Cache createCache() {
+        // Size-bounded LRU disk cache that survives restarts; set CACHE_MAX_MB=0 to disable
+        long maxBytes = EnvConfig.getInt("CACHE_MAX_MB", 50) * 1024L * 1024L;
+        if (maxBytes <= 0) {
+            return null;
+        }
+        File cacheDir = new File(EnvConfig.getString("CACHE_DIR", ".cache/http"));
+        logger.info("Using HTTP cache at {} ({} MB)", cacheDir, maxBytes / (1024 * 1024));
+        return new Cache(cacheDir, maxBytes);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (client == null) return;
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+        if (cache != null) {
+            try {
+                cache.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close HTTP cache", e);
+            }
+        }
+    }
+}
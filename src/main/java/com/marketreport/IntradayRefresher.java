@@ -0,0 +1,144 @@
+package com.marketreport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Keeps the last snapshot in memory and applies new quotes as a diff. The
+// sentiment count, top mover and rendered table rows are updated only for
+// rows whose values changed, so a refresh costs O(changed symbols). Rows stay
+// in watchlist order: a symbol missing from the first fetch is inserted at
+// its place when it arrives, which shifts the rows after it.
+public class IntradayRefresher {
+
+    public interface RowRenderer {
+        void render(HtmlWriter out, MarketDataBatch batch, int row) throws IOException;
+    }
+
+    private final MarketDataBatch snapshot;
+    private final RowRenderer rowRenderer;
+    private final Map<String, Integer> watchlistIndex;
+    private final byte[][] renderedRows;
+    private final ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream(512);
+    private final HtmlWriter rowWriter = new HtmlWriter(rowBuffer, 4096);
+    private final TreeSet<Integer> moversByMagnitude;
+    private int positiveCount;
+
+    // snapshot holds quotes for watchlist symbols in watchlist order, with room for all of them
+    public IntradayRefresher(MarketDataBatch snapshot, List<String> watchlist, RowRenderer rowRenderer) {
+        this.snapshot = snapshot;
+        this.rowRenderer = rowRenderer;
+        this.watchlistIndex = new HashMap<>(watchlist.size() * 2);
+        for (int i = 0; i < watchlist.size(); i++) {
+            watchlistIndex.putIfAbsent(watchlist.get(i), i);
+        }
+        this.renderedRows = new byte[snapshot.symbol.length][];
+        // Largest |changePercent| first; ties broken by row so each row is a distinct key
+        this.moversByMagnitude = new TreeSet<>((a, b) -> {
+            int cmp = Double.compare(Math.abs(snapshot.changePercent[b]), Math.abs(snapshot.changePercent[a]));
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        });
+
+        for (int row = 0; row < snapshot.size(); row++) {
+            positiveCount += snapshot.change[row] > 0 ? 1 : 0;
+            moversByMagnitude.add(row);
+            renderedRows[row] = renderRow(row);
+        }
+    }
+
+    // Applies fresh quotes and returns how many rows changed
+    public int apply(List<MarketData> quotes) {
+        int changed = 0;
+        for (MarketData data : quotes) {
+            int row = snapshot.indexOf(data.symbol);
+            if (row < 0) {
+                Integer position = watchlistIndex.get(data.symbol);
+                if (position == null || snapshot.size() == snapshot.symbol.length) {
+                    continue; // not part of the tracked watchlist
+                }
+                row = insertRow(position, data);
+                positiveCount += snapshot.change[row] > 0 ? 1 : 0;
+                changed++;
+                continue;
+            }
+            if (!hasChanged(row, data)) {
+                continue;
+            }
+
+            // Remove before mutating: the ordering reads the columns
+            moversByMagnitude.remove(row);
+            positiveCount -= snapshot.change[row] > 0 ? 1 : 0;
+            snapshot.set(row, data);
+            moversByMagnitude.add(row);
+            positiveCount += snapshot.change[row] > 0 ? 1 : 0;
+            renderedRows[row] = renderRow(row);
+            changed++;
+        }
+        return changed;
+    }
+
+    public MarketDataBatch snapshot() {
+        return snapshot;
+    }
+
+    public int positiveCount() {
+        return positiveCount;
+    }
+
+    public int topMoverRow() {
+        return moversByMagnitude.isEmpty() ? -1 : moversByMagnitude.first();
+    }
+
+    public void writeRows(HtmlWriter out) throws IOException {
+        for (int row = 0; row < snapshot.size(); row++) {
+            out.write(renderedRows[row]);
+        }
+    }
+
+    // Late symbols are rare, so shifting the rows after them is cheaper than keeping a separate display order
+    private int insertRow(int position, MarketData data) {
+        int row = 0;
+        int high = snapshot.size();
+        while (row < high) {
+            int middle = (row + high) >>> 1;
+            if (watchlistIndex.get(snapshot.symbol[middle]) < position) {
+                row = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        // Row numbers are the keys of the movers ordering, so rebuild it around the shifted rows
+        moversByMagnitude.clear();
+        snapshot.insert(row, data);
+        System.arraycopy(renderedRows, row, renderedRows, row + 1, snapshot.size() - 1 - row);
+        renderedRows[row] = renderRow(row);
+        for (int i = 0; i < snapshot.size(); i++) {
+            moversByMagnitude.add(i);
+        }
+        return row;
+    }
+
+    private boolean hasChanged(int row, MarketData data) {
+        return snapshot.currentPrice[row] != data.currentPrice
+                || snapshot.previousClose[row] != data.previousClose
+                || snapshot.volume[row] != data.volume
+                || snapshot.preMarketPrice[row] != data.preMarketPrice
+                || snapshot.preMarketChangePercent[row] != data.preMarketChangePercent;
+    }
+
+    private byte[] renderRow(int row) {
+        try {
+            rowBuffer.reset();
+            rowRenderer.render(rowWriter, snapshot, row);
+            rowWriter.flush();
+            return rowBuffer.toByteArray();
+        } catch (IOException e) {
+            // Rendering into memory does not fail
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.marketreport;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+// Weighted keyword relevance scorer. Keywords are compiled once into an
+// Aho-Corasick automaton over ASCII, so an article is scored in one
+// case-insensitive pass with no allocation. Matches must start and end on
+// word boundaries ("fed" does not match "feds" or "fedex"); a keyword ending
+// in '*' only needs the leading boundary ("earning*" matches "earnings").
+// Each keyword adds its weight at most once per article.
+public class KeywordScorer {
+    private static final int ALPHABET = 128;
+    private static final int ROOT = 0;
+
+    private final int[][] transitions;
+    private final int[][] outputs;
+    private final int[] keywordLengths;
+    private final boolean[] prefixMatch;
+    private final int[] weights;
+    private final int maxScore;
+    private final ThreadLocal<int[]> seenStamps;
+    private final ThreadLocal<int[]> generation = ThreadLocal.withInitial(() -> new int[1]);
+
+    public KeywordScorer(List<String> keywords, List<Integer> keywordWeights) {
+        if (keywords.size() != keywordWeights.size()) {
+            throw new IllegalArgumentException("Each keyword needs exactly one weight");
+        }
+
+        int keywordCount = keywords.size();
+        this.keywordLengths = new int[keywordCount];
+        this.prefixMatch = new boolean[keywordCount];
+        this.weights = new int[keywordCount];
+
+        // Build the trie
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> nodeOutputs = new ArrayList<>();
+        trie.add(newNode());
+        nodeOutputs.add(new ArrayList<>());
+
+        int total = 0;
+        for (int k = 0; k < keywordCount; k++) {
+            String keyword = keywords.get(k).trim().toLowerCase(Locale.ROOT);
+            if (keyword.endsWith("*")) {
+                prefixMatch[k] = true;
+                keyword = keyword.substring(0, keyword.length() - 1);
+            }
+            if (keyword.isEmpty()) {
+                throw new IllegalArgumentException("Empty keyword at position " + k);
+            }
+            keywordLengths[k] = keyword.length();
+            weights[k] = keywordWeights.get(k);
+            total += Math.max(0, weights[k]);
+
+            int node = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (c >= ALPHABET) {
+                    throw new IllegalArgumentException("Keywords must be ASCII: " + keywords.get(k));
+                }
+                if (trie.get(node)[c] < 0) {
+                    trie.get(node)[c] = trie.size();
+                    trie.add(newNode());
+                    nodeOutputs.add(new ArrayList<>());
+                }
+                node = trie.get(node)[c];
+            }
+            nodeOutputs.get(node).add(k);
+        }
+        this.maxScore = total;
+
+        // Breadth-first pass: compute failure links, merge their outputs and
+        // complete the transition table into a DFA
+        int[] failure = new int[trie.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int child = trie.get(ROOT)[c];
+            if (child < 0) {
+                trie.get(ROOT)[c] = ROOT;
+            } else {
+                failure[child] = ROOT;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            nodeOutputs.get(node).addAll(nodeOutputs.get(failure[node]));
+            for (int c = 0; c < ALPHABET; c++) {
+                int child = trie.get(node)[c];
+                if (child < 0) {
+                    trie.get(node)[c] = trie.get(failure[node])[c];
+                } else {
+                    failure[child] = trie.get(failure[node])[c];
+                    queue.add(child);
+                }
+            }
+        }
+
+        this.transitions = trie.toArray(new int[0][]);
+        this.outputs = new int[nodeOutputs.size()][];
+        for (int node = 0; node < nodeOutputs.size(); node++) {
+            outputs[node] = nodeOutputs.get(node).stream().mapToInt(Integer::intValue).toArray();
+        }
+        this.seenStamps = ThreadLocal.withInitial(() -> new int[keywordCount]);
+    }
+
+    // The original high/medium impact keyword lists. The substring scorer these
+    // replace also matched inflected forms ("investors", "rallied", "economics"),
+    // so those keywords take a '*' to keep matching them.
+    public static KeywordScorer defaults() {
+        List<String> keywords = new ArrayList<>();
+        List<Integer> keywordWeights = new ArrayList<>();
+        for (String keyword : Arrays.asList(
+                "federal reserve", "fed", "interest rate*", "inflation*", "recession*",
+                "earning*", "gdp", "unemploy*", "market crash*", "rall*",
+                "stimul*", "trade war*", "geopolitic*")) {
+            keywords.add(keyword);
+            keywordWeights.add(3);
+        }
+        for (String keyword : Arrays.asList(
+                "stock market*", "dow jones", "nasdaq", "s&p 500", "wall street",
+                "investor*", "trading", "economic*", "financial*")) {
+            keywords.add(keyword);
+            keywordWeights.add(1);
+        }
+        return new KeywordScorer(keywords, keywordWeights);
+    }
+
+    // Loads "<weight> <keyword phrase>" lines; blank lines and '#' comments are ignored
+    public static KeywordScorer load(Path file) throws IOException {
+        List<String> keywords = new ArrayList<>();
+        List<Integer> keywordWeights = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+            int split = trimmed.indexOf(' ');
+            if (split < 0) {
+                throw new IOException("Expected '<weight> <keyword>' but got: " + line);
+            }
+            try {
+                keywordWeights.add(Integer.parseInt(trimmed.substring(0, split)));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid weight in line: " + line, e);
+            }
+            keywords.add(trimmed.substring(split + 1).trim());
+        }
+        return new KeywordScorer(keywords, keywordWeights);
+    }
+
+    // Upper bound on any article's score
+    public int maxScore() {
+        return maxScore;
+    }
+
+    public int score(CharSequence text) {
+        return score(text, "");
+    }
+
+    // Scores two fields as if joined by a space, without concatenating them
+    public int score(CharSequence first, CharSequence second) {
+        int[] seen = seenStamps.get();
+        int[] stamp = generation.get();
+        if (++stamp[0] == 0) {
+            Arrays.fill(seen, 0);
+            stamp[0] = 1;
+        }
+
+        int firstLength = first.length();
+        int length = firstLength + 1 + second.length();
+        int score = 0;
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            char c = charAt(first, second, firstLength, i);
+            if (c >= ALPHABET) {
+                node = ROOT;
+                continue;
+            }
+            node = transitions[node][c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c];
+
+            for (int keyword : outputs[node]) {
+                if (seen[keyword] == stamp[0]) continue;
+
+                int start = i - keywordLengths[keyword] + 1;
+                boolean startsOnBoundary = start == 0 || !isWordChar(charAt(first, second, firstLength, start - 1));
+                boolean endsOnBoundary = prefixMatch[keyword] || i + 1 == length
+                        || !isWordChar(charAt(first, second, firstLength, i + 1));
+                if (startsOnBoundary && endsOnBoundary) {
+                    seen[keyword] = stamp[0];
+                    score += weights[keyword];
+                }
+            }
+        }
+        return score;
+    }
+
+    private static char charAt(CharSequence first, CharSequence second, int firstLength, int index) {
+        if (index < firstLength) return first.charAt(index);
+        if (index == firstLength) return ' ';
+        return second.charAt(index - firstLength - 1);
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[ALPHABET];
+        Arrays.fill(node, -1);
+        return node;
+    }
+}
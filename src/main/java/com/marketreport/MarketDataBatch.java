@@ -0,0 +1,177 @@
+package com.marketreport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Struct-of-arrays view of a market snapshot: one primitive column per
+// MarketData field, indexed by row. Symbols are interned to their row index.
+public class MarketDataBatch {
+    public final String[] symbol;
+    public final String[] name;
+    public final double[] previousClose;
+    public final double[] currentPrice;
+    public final double[] change;
+    public final double[] changePercent;
+    public final long[] volume;
+    public final double[] preMarketPrice;
+    public final double[] preMarketChange;
+    public final double[] preMarketChangePercent;
+
+    private final Map<String, Integer> symbolIndex;
+    private int size;
+
+    public MarketDataBatch(int capacity) {
+        this.symbol = new String[capacity];
+        this.name = new String[capacity];
+        this.previousClose = new double[capacity];
+        this.currentPrice = new double[capacity];
+        this.change = new double[capacity];
+        this.changePercent = new double[capacity];
+        this.volume = new long[capacity];
+        this.preMarketPrice = new double[capacity];
+        this.preMarketChange = new double[capacity];
+        this.preMarketChangePercent = new double[capacity];
+        this.symbolIndex = new HashMap<>(Math.max(16, capacity * 2));
+    }
+
+    public static MarketDataBatch of(List<MarketData> marketData) {
+        return of(marketData, marketData.size());
+    }
+
+    public static MarketDataBatch of(List<MarketData> marketData, int capacity) {
+        MarketDataBatch batch = new MarketDataBatch(Math.max(capacity, marketData.size()));
+        for (MarketData data : marketData) {
+            batch.add(data);
+        }
+        return batch;
+    }
+
+    // Copies the rows for the given symbols, in that order, into a new batch; unknown symbols are skipped
+    public MarketDataBatch select(List<String> symbols) {
+        MarketDataBatch selection = new MarketDataBatch(symbols.size());
+        for (String sym : symbols) {
+            int row = indexOf(sym);
+            if (row >= 0 && selection.indexOf(sym) < 0) {
+                int target = selection.size++;
+                selection.symbolIndex.put(sym, target);
+                selection.symbol[target] = symbol[row];
+                selection.name[target] = name[row];
+                selection.previousClose[target] = previousClose[row];
+                selection.currentPrice[target] = currentPrice[row];
+                selection.change[target] = change[row];
+                selection.changePercent[target] = changePercent[row];
+                selection.volume[target] = volume[row];
+                selection.preMarketPrice[target] = preMarketPrice[row];
+                selection.preMarketChange[target] = preMarketChange[row];
+                selection.preMarketChangePercent[target] = preMarketChangePercent[row];
+            }
+        }
+        return selection;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Returns the row for a symbol, or -1 if absent
+    public int indexOf(String sym) {
+        Integer index = symbolIndex.get(sym);
+        return index == null ? -1 : index;
+    }
+
+    public int add(MarketData data) {
+        int row = indexOf(data.symbol);
+        if (row < 0) {
+            if (size == symbol.length) {
+                throw new IllegalStateException("Batch is full (capacity " + symbol.length + ")");
+            }
+            row = size++;
+            symbolIndex.put(data.symbol, row);
+        }
+        set(row, data);
+        return row;
+    }
+
+    // Adds a new symbol at row, moving the rows from there on down by one
+    public void insert(int row, MarketData data) {
+        if (indexOf(data.symbol) >= 0) {
+            throw new IllegalArgumentException(data.symbol + " is already in the batch");
+        }
+        if (size == symbol.length) {
+            throw new IllegalStateException("Batch is full (capacity " + symbol.length + ")");
+        }
+        int moved = size - row;
+        System.arraycopy(symbol, row, symbol, row + 1, moved);
+        System.arraycopy(name, row, name, row + 1, moved);
+        System.arraycopy(previousClose, row, previousClose, row + 1, moved);
+        System.arraycopy(currentPrice, row, currentPrice, row + 1, moved);
+        System.arraycopy(change, row, change, row + 1, moved);
+        System.arraycopy(changePercent, row, changePercent, row + 1, moved);
+        System.arraycopy(volume, row, volume, row + 1, moved);
+        System.arraycopy(preMarketPrice, row, preMarketPrice, row + 1, moved);
+        System.arraycopy(preMarketChange, row, preMarketChange, row + 1, moved);
+        System.arraycopy(preMarketChangePercent, row, preMarketChangePercent, row + 1, moved);
+        size++;
+        for (int i = row + 1; i < size; i++) {
+            symbolIndex.put(symbol[i], i);
+        }
+        symbolIndex.put(data.symbol, row);
+        set(row, data);
+    }
+
+    public void set(int row, MarketData data) {
+        symbol[row] = data.symbol;
+        name[row] = data.name;
+        previousClose[row] = data.previousClose;
+        currentPrice[row] = data.currentPrice;
+        change[row] = data.change;
+        changePercent[row] = data.changePercent;
+        volume[row] = data.volume;
+        preMarketPrice[row] = data.preMarketPrice;
+        preMarketChange[row] = data.preMarketChange;
+        preMarketChangePercent[row] = data.preMarketChangePercent;
+    }
+
+    public MarketData get(int row) {
+        return new MarketData(symbol[row], name[row], previousClose[row], currentPrice[row],
+                change[row], changePercent[row], volume[row],
+                preMarketPrice[row], preMarketChange[row], preMarketChangePercent[row]);
+    }
+
+    // Rows as MarketData objects, in row order
+    public List<MarketData> toList() {
+        List<MarketData> marketData = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            marketData.add(get(row));
+        }
+        return marketData;
+    }
+
+    public int countPositiveChange() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            count += change[i] > 0 ? 1 : 0;
+        }
+        return count;
+    }
+
+    // Row with the largest absolute percent change, or -1 if empty
+    public int indexOfTopMover() {
+        int best = -1;
+        double bestMove = -1;
+        for (int i = 0; i < size; i++) {
+            double move = Math.abs(changePercent[i]);
+            if (move > bestMove) {
+                bestMove = move;
+                best = i;
+            }
+        }
+        return best;
+    }
+}
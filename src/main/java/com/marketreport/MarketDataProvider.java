@@ -0,0 +1,19 @@
+package com.marketreport;
+
+import java.util.List;
+
+// Source of quotes for the report. Implementations decide how symbols are
+// batched and fetched; symbols that can't be fetched are left out of the
+// result, which keeps the order of the requested symbols.
+public interface MarketDataProvider {
+    // Key for per-host concurrency limits in the fetch engine
+    String host();
+
+    List<MarketData> fetchQuotes(List<String> symbols) throws InterruptedException;
+
+    // Like fetchQuotes, but never answered from a response cache: intraday refreshes
+    // run more often than cached quotes expire
+    default List<MarketData> fetchFreshQuotes(List<String> symbols) throws InterruptedException {
+        return fetchQuotes(symbols);
+    }
+}
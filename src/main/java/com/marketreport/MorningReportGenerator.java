@@ -1,33 +1,72 @@
 package com.marketreport;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.mail.*;
-import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeMessage;
-import java.io.FileWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
-public class MorningReportGenerator {
+public class MorningReportGenerator implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(MorningReportGenerator.class);
     
-    private final OkHttpClient httpClient;
-    private final Gson gson;
-    private final String newsApiKey;
-    private final EmailService emailService;
+    private final HttpClientProvider http;
+    private final String dataProvider;
+    private final Path historyDir;
+    // Built on first use; see providers() and emailService()
+    private boolean providersCreated;
+    private MarketDataProvider marketDataProvider;
+    private NewsProvider newsProvider;
+    private EmailService emailService;
+    private final FetchEngine fetchEngine;
+    private final ReportRenderer renderer = new ReportRenderer();
+    private final RunMetrics metrics = new RunMetrics();
+    private final StageRunner stages = new StageRunner(metrics);
+    private final KeywordScorer relevanceScorer;
+    private final List<String> newsQueries;
+    private final int newsPageSize;
+    private final int newsMaxPages;
+    private final int newsPageConcurrency;
+    private final int newsStalePages;
+    private final int newsTopK;
+    private final int newsDedupDistance;
+    private final int marketTimeoutSeconds;
+    private final int newsTimeoutSeconds;
+    private final int renderTimeoutSeconds;
+    private final int emailTimeoutSeconds;
+    private final boolean archiveHtml;
+    private final boolean archiveSnapshot;
+    private final boolean snapshotCompress;
     
+    static final ZoneId MARKET_ZONE = ZoneId.of("America/New_York");
+    private static final LocalTime MARKET_OPEN = LocalTime.of(9, 30);
+    private static final String DEFAULT_NEWS_QUERY =
+            "(stock market OR economy OR federal reserve OR inflation OR earnings) AND (US OR America)";
+
     // Major symbols to track
     private final String[] MAJOR_INDICES = {"^GSPC", "^DJI", "^IXIC", "^RUT", "^VIX"};
     private final String[] MAJOR_STOCKS = {
@@ -36,400 +75,628 @@ public class MorningReportGenerator {
     };
 
     public MorningReportGenerator() {
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .build();
-        this.gson = new Gson();
-        this.newsApiKey = System.getenv("NEWS_API_KEY");
-        this.emailService = new EmailService();
+        this(EnvConfig.getString("DATA_PROVIDER", "live"),
+                Paths.get(EnvConfig.getString("HISTORY_DIR", "data/history")));
+    }
+
+    // dataProvider is "live" (Yahoo Finance and NewsAPI) or "replay" (see ReplayProvider)
+    public MorningReportGenerator(String dataProvider, Path historyDir) {
+        this.historyDir = historyDir;
+        int maxPerHost = EnvConfig.getInt("FETCH_MAX_PER_HOST", 8);
+        this.http = HttpClientProvider.fromEnv(metrics, maxPerHost);
+        this.fetchEngine = new FetchEngine(
+                EnvConfig.getInt("FETCH_THREADS", 16),
+                EnvConfig.getDouble("FETCH_RATE_PER_SECOND", 20.0),
+                EnvConfig.getInt("FETCH_RATE_BURST", 5),
+                maxPerHost);
+        this.dataProvider = dataProvider;
+        this.relevanceScorer = createRelevanceScorer();
+        this.newsQueries = new ArrayList<>();
+        for (String query : EnvConfig.getString("NEWS_QUERIES", DEFAULT_NEWS_QUERY).split(";")) {
+            if (!query.trim().isEmpty()) {
+                newsQueries.add(query.trim());
+            }
+        }
+        this.newsPageSize = Math.max(1, Math.min(100, EnvConfig.getInt("NEWS_PAGE_SIZE", 15)));
+        this.newsMaxPages = Math.max(1, EnvConfig.getInt("NEWS_MAX_PAGES", 1));
+        this.newsPageConcurrency = Math.max(1, EnvConfig.getInt("NEWS_PAGE_CONCURRENCY", 3));
+        this.newsStalePages = Math.max(1, EnvConfig.getInt("NEWS_STALE_PAGES", 2));
+        this.newsTopK = Math.max(1, EnvConfig.getInt("NEWS_TOP_K", 10));
+        this.newsDedupDistance = Math.min(7, EnvConfig.getInt("NEWS_DEDUP_DISTANCE", 6));
+        this.marketTimeoutSeconds = EnvConfig.getInt("MARKET_TIMEOUT_SECONDS", 120);
+        this.newsTimeoutSeconds = EnvConfig.getInt("NEWS_TIMEOUT_SECONDS", 45);
+        this.renderTimeoutSeconds = EnvConfig.getInt("RENDER_TIMEOUT_SECONDS", 30);
+        this.emailTimeoutSeconds = EnvConfig.getInt("EMAIL_TIMEOUT_SECONDS", 120);
+        // html, snapshot or both; snapshots can be rendered back to HTML with SnapshotTool
+        String archive = EnvConfig.getString("REPORT_ARCHIVE", "both").toLowerCase(Locale.ROOT);
+        this.archiveHtml = !archive.equals("snapshot");
+        this.archiveSnapshot = !archive.equals("html");
+        this.snapshotCompress = Boolean.parseBoolean(EnvConfig.getString("SNAPSHOT_COMPRESS", "false"));
         
         logger.info("Morning Report Generator initialized");
     }
 
     public static void main(String[] args) {
-        try {
-            MorningReportGenerator generator = new MorningReportGenerator();
-            generator.generateAndSendReport();
+        List<String> arguments = Arrays.asList(args);
+        boolean refreshMode = arguments.contains("--refresh")
+                || Boolean.parseBoolean(System.getenv("REFRESH_MODE"));
+        int subscriptionsArg = arguments.indexOf("--subscriptions");
+        String subscriptionsFile = subscriptionsArg >= 0 && subscriptionsArg + 1 < args.length
+                ? args[subscriptionsArg + 1] : System.getenv("SUBSCRIPTIONS_FILE");
+        
+        if (arguments.contains("--training-run")) {
+            try {
+                runTraining();
+            } catch (Exception e) {
+                logger.error("Training run failed", e);
+                System.exit(1);
+            }
+            return;
+        }
+        
+        try (MorningReportGenerator generator = new MorningReportGenerator()) {
+            if (subscriptionsFile != null && !subscriptionsFile.isEmpty()) {
+                generator.generateAndSendPersonalReports(Paths.get(subscriptionsFile));
+            } else if (refreshMode) {
+                generator.runRefreshMode();
+            } else {
+                generator.generateAndSendReport();
+            }
         } catch (Exception e) {
             logger.error("Error generating morning report", e);
             System.exit(1);
         }
     }
 
+    // Offline pass over the same code paths as a scheduled run, without network access or
+    // side effects. The startup profile records the classes it loads into a CDS archive.
+    private static void runTraining() throws Exception {
+        Path workDir = Files.createTempDirectory("morning-report-training");
+        try (MorningReportGenerator generator = new MorningReportGenerator("replay", workDir.resolve("history"))) {
+            Path report = generator.buildReport(generator.loadWatchlist(), workDir.resolve("training.html"));
+            generator.metrics.export(report);
+            generator.emailService().warmUp(report.toFile());
+
+            // Nothing listens on the discard port; the refused call still loads the OkHttp call path
+            Request request = new Request.Builder().url("http://127.0.0.1:9/").build();
+            try (Response ignored = generator.http.client().newCall(request).execute()) {
+                logger.debug("Unexpected response from the discard port");
+            } catch (IOException expected) {
+                logger.debug("Training call refused as expected");
+            }
+            logger.info("Training run rendered a {} byte report", Files.size(report));
+        } finally {
+            try (Stream<Path> files = Files.walk(workDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
     public void generateAndSendReport() throws Exception {
         logger.info("Starting morning report generation...");
+        List<String> watchlist = loadWatchlist();
+        String reportPath = newReportFilename();
+        try {
+            runReportStages(watchlist, reportPath);
+        } finally {
+            metrics.export(Paths.get(reportPath));
+        }
         
-        // Fetch market data
-        List<MarketData> marketData = fetchMarketData();
-        
-        // Fetch news headlines
-        List<NewsHeadline> headlines = fetchNewsHeadlines();
+        logger.info("Morning report generated and sent successfully!");
+    }
+
+    private void runReportStages(List<String> watchlist, String reportPath) throws Exception {
+        // Market data and news are fetched concurrently
+        CompletableFuture<List<MarketData>> marketData = marketStage(watchlist);
+        CompletableFuture<List<NewsHeadline>> headlines = newsStage();
         
-        // Generate HTML report
-        String htmlReport = generateHTMLReport(marketData, headlines);
+        // The report is written straight to its file and mailed from there; when only
+        // snapshots are archived that file is temporary
+        Path reportFile = archiveHtml ? Paths.get(reportPath) : Files.createTempFile("morning_report", ".html");
+        try {
+            CompletableFuture<Path> report = renderStages(marketData, headlines, reportFile);
+            
+            // Archiving and sending run in parallel; the snapshot doesn't wait for rendering
+            CompletableFuture<String> archived = archiveSnapshot
+                    ? stages.stage("save snapshot", renderTimeoutSeconds,
+                            () -> saveSnapshot(reportPath, marketData.join(), headlines.join()), marketData, headlines)
+                    : CompletableFuture.completedFuture(null);
+            CompletableFuture<Void> sent = stages.stage("send email", emailTimeoutSeconds, () -> {
+                emailService().sendReport(report.join().toFile(), MarketDataBatch.of(marketData.join()),
+                        headlines.join());
+                return null;
+            }, report);
+            
+            // Wait for all, so a failed snapshot is still reported when the email went out and vice versa
+            CompletableFuture.allOf(report, archived, sent).handle((ignored, e) -> null).join();
+            StageRunner.await(report);
+            if (archiveHtml) {
+                logger.info("Report saved to: {}", reportPath);
+            }
+            StageRunner.await(archived);
+            StageRunner.await(sent);
+        } finally {
+            if (!archiveHtml) {
+                Files.deleteIfExists(reportFile);
+            }
+        }
+    }
+
+    // Fetches and renders a report into target without sending it
+    public Path buildReport(List<String> symbols, Path target) throws Exception {
+        return StageRunner.await(renderStages(marketStage(symbols), newsStage(), target));
+    }
+
+    // Each section renders as soon as its inputs arrive
+    private CompletableFuture<Path> renderStages(CompletableFuture<List<MarketData>> marketData,
+                                                 CompletableFuture<List<NewsHeadline>> headlines, Path target) {
+        CompletableFuture<MarketDataBatch> batch = stages.stage("columnar snapshot", renderTimeoutSeconds,
+                () -> MarketDataBatch.of(marketData.join()), marketData);
         
-        // Save report to file
-        String reportPath = saveReportToFile(htmlReport);
+        // Persist today's snapshot and load trend history; the report goes out without trends if this fails
+        CompletableFuture<HistoryStore> history = StageRunner.withFallback("history",
+                stages.stage("history", renderTimeoutSeconds, () -> recordHistory(marketData.join()), marketData),
+                () -> null);
         
-        // Send email
-        emailService.sendReport(htmlReport, marketData, headlines);
+        CompletableFuture<byte[]> marketSection = stages.stage("render market table", renderTimeoutSeconds,
+                () -> renderSection(out -> {
+                    MarketDataBatch snapshot = batch.join();
+                    renderer.writeMarketTableOpen(out);
+                    for (int row = 0; row < snapshot.size(); row++) {
+                        renderer.writeMarketRow(out, snapshot, row);
+                    }
+                    renderer.writeMarketTableClose(out);
+                }), batch);
+        CompletableFuture<byte[]> moversSection = StageRunner.withFallback("render movers",
+                stages.stage("render movers", renderTimeoutSeconds,
+                        () -> renderSection(out -> renderer.writeMoversSection(out, batch.join(), history.join())),
+                        batch, history),
+                () -> new byte[0]);
+        CompletableFuture<byte[]> trendSection = StageRunner.withFallback("render trends",
+                stages.stage("render trends", renderTimeoutSeconds,
+                        () -> renderSection(out -> renderer.writeTrendSection(out, batch.join(), history.join())),
+                        batch, history),
+                () -> new byte[0]);
+        CompletableFuture<byte[]> newsSection = stages.stage("render news", renderTimeoutSeconds,
+                () -> renderSection(out -> renderer.writeNewsSection(out, headlines.join())), headlines);
         
-        logger.info("Morning report generated and sent successfully!");
+        // Only the header and summary need every input; the rendered sections then go to the file in order
+        return stages.stage("write report", renderTimeoutSeconds, () -> {
+            try (HtmlWriter out = openReport(target.toString())) {
+                MarketDataBatch snapshot = batch.join();
+                renderer.writeHead(out, LocalDateTime.now());
+                renderer.writeSummary(out, snapshot, snapshot.countPositiveChange(), snapshot.indexOfTopMover(),
+                        headlines.join().size());
+                out.write(marketSection.join()).write(moversSection.join())
+                   .write(trendSection.join()).write(newsSection.join());
+                renderer.writeFooter(out);
+            }
+            return target;
+        }, batch, headlines, marketSection, moversSection, trendSection, newsSection);
     }
 
-    private List<MarketData> fetchMarketData() throws IOException {
-        logger.info("Fetching market data...");
-        List<MarketData> marketData = new ArrayList<>();
+    // Multi-tenant mode: one shared fetch of the union of all watchlists, then one report per subscriber
+    public void generateAndSendPersonalReports(Path subscriptionsFile) throws Exception {
+        List<Subscription> subscriptions = Subscription.loadAll(subscriptionsFile);
+        Set<String> uniqueSymbols = new LinkedHashSet<>();
+        for (Subscription subscription : subscriptions) {
+            uniqueSymbols.addAll(subscription.symbols);
+        }
+        logger.info("Starting personalised reports for {} subscribers over {} unique symbols",
+                subscriptions.size(), uniqueSymbols.size());
         
-        // Combine all symbols
-        List<String> allSymbols = new ArrayList<>();
-        allSymbols.addAll(Arrays.asList(MAJOR_INDICES));
-        allSymbols.addAll(Arrays.asList(MAJOR_STOCKS));
+        // Subscribers with keywords get their own top K from every scored article, not a
+        // filter over the global top K, which may hold none of their stories
+        Map<Subscription, HeadlineSelector> personalSelectors = new LinkedHashMap<>();
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.keywords.isEmpty()) {
+                personalSelectors.put(subscription, new HeadlineSelector(newsTopK, newsDedupDistance));
+            }
+        }
         
-        for (String symbol : allSymbols) {
-            try {
-                MarketData data = fetchYahooFinanceData(symbol);
-                if (data != null) {
-                    marketData.add(data);
+        CompletableFuture<List<NewsHeadline>> news = newsStage(personalSelectors);
+        List<MarketData> marketData = StageRunner.await(marketStage(new ArrayList<>(uniqueSymbols)));
+        List<NewsHeadline> headlines = StageRunner.await(news);
+        HistoryStore history = recordHistory(marketData);
+        MarketDataBatch shared = MarketDataBatch.of(marketData);
+        
+        Path reportDir = Files.createDirectories(Paths.get("reports/personal"));
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        
+        // Render from the shared snapshot in parallel; nothing is fetched per subscriber
+        int threads = Math.max(1, Math.min(subscriptions.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService renderPool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> reports = new ArrayList<>();
+            for (Subscription subscription : subscriptions) {
+                reports.add(renderPool.submit(() -> {
+                    HeadlineSelector personalSelector = personalSelectors.get(subscription);
+                    List<NewsHeadline> personalHeadlines = personalSelector != null ? personalSelector.top() : headlines;
+                    
+                    String filename = reportDir.resolve(
+                            subscription.email.replaceAll("[^A-Za-z0-9._-]", "_") + "_" + timestamp + ".html").toString();
+                    MarketDataBatch personalData = shared.select(subscription.symbols);
+                    try (HtmlWriter out = openReport(filename)) {
+                        generateHTMLReport(out, personalData, personalHeadlines, history);
+                    }
+                    emailService().sendPersonalReport(subscription.email, new File(filename), personalData,
+                            personalHeadlines);
+                    return null;
+                }));
+            }
+            
+            int failed = 0;
+            for (int i = 0; i < reports.size(); i++) {
+                try {
+                    reports.get(i).get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    logger.warn("Personal report failed for " + subscriptions.get(i).email, e.getCause());
                 }
-                
-                // Small delay to avoid rate limiting
-                Thread.sleep(100);
-                
-            } catch (Exception e) {
-                logger.warn("Error fetching data for symbol: " + symbol, e);
             }
+            logger.info("Personal reports delivered to {} of {} subscribers",
+                    subscriptions.size() - failed, subscriptions.size());
+        } finally {
+            renderPool.shutdownNow();
+            metrics.export(reportDir.resolve("personal_reports_" + timestamp));
         }
-        
-        logger.info("Fetched data for {} symbols", marketData.size());
-        return marketData;
     }
 
-    private MarketData fetchYahooFinanceData(String symbol) throws IOException {
-        // Yahoo Finance API endpoint
-        String url = String.format(
-            "https://query1.finance.yahoo.com/v8/finance/chart/%s?interval=1d&range=5d", 
-            symbol
-        );
+    // Long-lived mode: refresh quotes every interval until the open, re-rendering only changed rows
+    public void runRefreshMode() throws Exception {
+        logger.info("Starting intraday refresh mode...");
+        
+        List<String> watchlist = loadWatchlist();
+        CompletableFuture<List<NewsHeadline>> news = newsStage();
+        List<MarketData> marketData = StageRunner.await(marketStage(watchlist));
+        List<NewsHeadline> headlines = StageRunner.await(news);
+        HistoryStore history = recordHistory(marketData);
+        
+        IntradayRefresher refresher = new IntradayRefresher(
+                MarketDataBatch.of(marketData, watchlist.size()), watchlist, renderer::writeMarketRow);
+        
+        // Sections after the movers don't depend on quotes, so they are rendered once
+        ByteArrayOutputStream trailerBuffer = new ByteArrayOutputStream();
+        try (HtmlWriter trailerWriter = new HtmlWriter(trailerBuffer)) {
+            renderer.writeTrailer(trailerWriter, refresher.snapshot(), headlines, history);
+        }
+        byte[] trailer = trailerBuffer.toByteArray();
+        
+        long intervalMillis = TimeUnit.SECONDS.toMillis(EnvConfig.getInt("REFRESH_INTERVAL_SECONDS", 60));
+        String livePath = "reports/morning_report_live.html";
+        writeRefreshedReport(livePath, refresher, headlines.size(), history, trailer);
+        
+        while (LocalTime.now(MARKET_ZONE).isBefore(MARKET_OPEN)) {
+            Thread.sleep(intervalMillis);
+            
+            // Quotes are cached for longer than the refresh interval, so go to the network
+            int changed = refresher.apply(marketDataProvider().fetchFreshQuotes(watchlist));
+            if (changed == 0) {
+                logger.info("No quote changes since last refresh");
+                continue;
+            }
+            writeRefreshedReport(livePath, refresher, headlines.size(), history, trailer);
+            logger.info("Refreshed {} of {} rows", changed, refresher.snapshot().size());
+        }
+        
+        logger.info("Market open reached, sending final report");
+        // Today's history row and the email summary use the last refreshed quotes, not the first fetch
+        MarketDataBatch latest = refresher.snapshot();
+        recordHistory(latest.toList());
+        String reportPath = newReportFilename();
+        Files.copy(Paths.get(livePath), Paths.get(reportPath), StandardCopyOption.REPLACE_EXISTING);
+        emailService().sendReport(new File(reportPath), latest, headlines);
+        metrics.export(Paths.get(reportPath));
+    }
 
-        Request request = new Request.Builder()
-                .url(url)
-                .addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
-                .build();
+    // Movers are ranked again from the refreshed quotes each time
+    private void writeRefreshedReport(String filename, IntradayRefresher refresher, int headlineCount,
+                                      HistoryStore history, byte[] trailer) throws IOException {
+        MarketDataBatch batch = refresher.snapshot();
+        try (HtmlWriter out = openReport(filename)) {
+            renderer.writeHead(out, LocalDateTime.now());
+            renderer.writeSummary(out, batch, refresher.positiveCount(), refresher.topMoverRow(), headlineCount);
+            renderer.writeMarketTableOpen(out);
+            refresher.writeRows(out);
+            renderer.writeMarketTableClose(out);
+            renderer.writeMoversSection(out, batch, history);
+            out.write(trailer);
+        }
+    }
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                logger.warn("Failed to fetch data for {}: {}", symbol, response.code());
-                return null;
+    @Override
+    public void close() {
+        stages.close();
+        fetchEngine.close();
+        http.close();
+        synchronized (this) {
+            if (emailService != null) {
+                emailService.close();
             }
+        }
+    }
 
-            String responseBody = response.body().string();
-            JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
-            
-            JsonObject chart = jsonResponse.getAsJsonObject("chart");
-            JsonArray result = chart.getAsJsonArray("result");
-            
-            if (result.size() == 0) {
-                return null;
+    private synchronized EmailService emailService() {
+        if (emailService == null) {
+            emailService = new EmailService(metrics, renderer);
+        }
+        return emailService;
+    }
+
+    // Providers are built when a run first needs data, so the HTTP client is only
+    // created for live runs
+    private synchronized void providers() {
+        if (providersCreated) return;
+        if (dataProvider.equalsIgnoreCase("replay")) {
+            // Offline: recorded or synthetic responses with simulated latency and failures
+            ReplayProvider replay = ReplayProvider.fromEnv(fetchEngine);
+            marketDataProvider = replay;
+            newsProvider = replay;
+        } else {
+            marketDataProvider = new YahooMarketDataProvider(fetchEngine,
+                    new ResilientHttp(http.client(), fetchEngine, metrics));
+            String newsApiKey = System.getenv("NEWS_API_KEY");
+            newsProvider = newsApiKey == null || newsApiKey.isEmpty() ? null
+                    : new NewsApiProvider(http.client(), newsApiKey);
+        }
+        providersCreated = true;
+    }
+
+    private synchronized MarketDataProvider marketDataProvider() {
+        providers();
+        return marketDataProvider;
+    }
+
+    private synchronized NewsProvider newsProvider() {
+        providers();
+        return newsProvider;
+    }
+
+    private KeywordScorer createRelevanceScorer() {
+        String keywordsFile = System.getenv("NEWS_KEYWORDS_FILE");
+        if (keywordsFile == null || keywordsFile.isEmpty()) {
+            return KeywordScorer.defaults();
+        }
+        try {
+            KeywordScorer scorer = KeywordScorer.load(Paths.get(keywordsFile));
+            logger.info("Loaded news keywords from {}", keywordsFile);
+            return scorer;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Could not load news keywords from " + keywordsFile + ", using defaults", e);
+            return KeywordScorer.defaults();
+        }
+    }
+
+    private List<MarketData> fetchMarketData(List<String> allSymbols) throws InterruptedException {
+        logger.info("Fetching market data...");
+        
+        List<MarketData> marketData = marketDataProvider().fetchQuotes(allSymbols);
+        
+        logger.info("Fetched data for {} of {} symbols", marketData.size(), allSymbols.size());
+        return marketData;
+    }
+
+    private List<String> loadWatchlist() throws IOException {
+        String watchlistFile = System.getenv("WATCHLIST_FILE");
+        if (watchlistFile == null || watchlistFile.isEmpty()) {
+            // Combine all symbols
+            List<String> allSymbols = new ArrayList<>();
+            allSymbols.addAll(Arrays.asList(MAJOR_INDICES));
+            allSymbols.addAll(Arrays.asList(MAJOR_STOCKS));
+            return allSymbols;
+        }
+
+        // One symbol per line; blank lines and '#' comments are ignored
+        Set<String> symbols = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(Paths.get(watchlistFile), StandardCharsets.UTF_8)) {
+            String symbol = line.trim();
+            if (!symbol.isEmpty() && !symbol.startsWith("#")) {
+                symbols.add(symbol);
             }
-            
-            JsonObject data = result.get(0).getAsJsonObject();
-            JsonObject meta = data.getAsJsonObject("meta");
-            
-            // Extract price data
-            double currentPrice = meta.get("regularMarketPrice").getAsDouble();
-            double previousClose = meta.get("previousClose").getAsDouble();
-            double change = currentPrice - previousClose;
-            double changePercent = (change / previousClose) * 100;
-            
-            // Get volume and market cap if available
-            long volume = meta.has("regularMarketVolume") ? 
-                meta.get("regularMarketVolume").getAsLong() : 0L;
-            
-            // Pre-market data if available
-            double preMarketPrice = meta.has("preMarketPrice") ? 
-                meta.get("preMarketPrice").getAsDouble() : 0.0;
-            double preMarketChange = meta.has("preMarketChange") ? 
-                meta.get("preMarketChange").getAsDouble() : 0.0;
-            double preMarketChangePercent = meta.has("preMarketChangePercent") ? 
-                meta.get("preMarketChangePercent").getAsDouble() : 0.0;
-
-            String displayName = meta.has("longName") ? 
-                meta.get("longName").getAsString() : symbol;
-
-            return new MarketData(
-                symbol, displayName, previousClose, currentPrice, change, changePercent,
-                volume, preMarketPrice, preMarketChange, preMarketChangePercent
-            );
         }
+        logger.info("Loaded {} symbols from {}", symbols.size(), watchlistFile);
+        return new ArrayList<>(symbols);
+    }
+
+    // Quotes are required: without them there is no report, so a timeout fails the run
+    private CompletableFuture<List<MarketData>> marketStage(List<String> symbols) {
+        return stages.stage("market data", marketTimeoutSeconds, () -> fetchMarketData(symbols));
+    }
+
+    // News is optional: on a timeout or failure the report uses whatever headlines were selected so far
+    private CompletableFuture<List<NewsHeadline>> newsStage() {
+        return newsStage(Collections.emptyMap());
+    }
+
+    // Articles matching a subscription's keywords are also offered to its selector
+    private CompletableFuture<List<NewsHeadline>> newsStage(Map<Subscription, HeadlineSelector> personalSelectors) {
+        HeadlineSelector selector = new HeadlineSelector(newsTopK, newsDedupDistance);
+        return StageRunner.withFallback("news",
+                stages.stage("news", newsTimeoutSeconds, () -> fetchNewsHeadlines(selector, personalSelectors)),
+                selector::top);
     }
 
-    private List<NewsHeadline> fetchNewsHeadlines() throws IOException {
+    private List<NewsHeadline> fetchNewsHeadlines(HeadlineSelector selector,
+                                                  Map<Subscription, HeadlineSelector> personalSelectors)
+            throws InterruptedException {
         logger.info("Fetching news headlines...");
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, newsTimeoutSeconds));
         
-        if (newsApiKey == null || newsApiKey.isEmpty()) {
+        NewsProvider newsProvider = newsProvider();
+        if (newsProvider == null) {
             logger.warn("NEWS_API_KEY not provided, skipping news fetch");
             return new ArrayList<>();
         }
 
-        List<NewsHeadline> headlines = new ArrayList<>();
-        
-        // Calculate time range (last 16 hours)
-        LocalDateTime sixteenHoursAgo = LocalDateTime.now().minusHours(16);
+        // Calculate time range (last 16 hours), truncated to the hour so reruns share a cache key
+        LocalDateTime sixteenHoursAgo = LocalDateTime.now().minusHours(16).truncatedTo(ChronoUnit.HOURS);
         String fromDate = sixteenHoursAgo.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
 
-        String url = "https://newsapi.org/v2/everything?" +
-                "q=(stock market OR economy OR federal reserve OR inflation OR earnings) AND (US OR America)&" +
-                "from=" + fromDate + "&" +
-                "sortBy=relevancy&" +
-                "language=en&" +
-                "pageSize=15&" +
-                "apiKey=" + newsApiKey;
-
-        Request request = new Request.Builder()
-                .url(url)
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                logger.warn("Failed to fetch news: {}", response.code());
-                return headlines;
+        // Only the best K distinct stories are ever held, however many pages are read
+        List<String> activeQueries = new ArrayList<>(newsQueries);
+        int pagesWithoutGain = 0;
+        for (int firstPage = 1; firstPage <= newsMaxPages && !activeQueries.isEmpty(); firstPage += newsPageConcurrency) {
+            // Don't start another window past the stage deadline; the caller falls back to the current top K
+            if (newsTimeoutSeconds > 0 && firstPage > 1 && System.nanoTime() - deadlineNanos > 0) {
+                logger.warn("News deadline reached after {} pages per query, stopping early", firstPage - 1);
+                break;
             }
-
-            String responseBody = response.body().string();
-            JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
+            // Fetch the next window of pages for every query concurrently, scoring articles as they stream in
+            List<NewsPageRequest> wave = new ArrayList<>();
+            for (String query : activeQueries) {
+                for (int page = firstPage; page < firstPage + newsPageConcurrency && page <= newsMaxPages; page++) {
+                    wave.add(new NewsPageRequest(query, page));
+                }
+            }
+            List<NewsPageResult> results = fetchEngine.fetchAll(newsProvider.host(), wave,
+                    page -> fetchNewsPage(newsProvider, page, fromDate, selector, personalSelectors));
             
-            JsonArray articles = jsonResponse.getAsJsonArray("articles");
+            // Drop queries whose results are exhausted
+            boolean gained = false;
+            Set<String> exhausted = new HashSet<>(activeQueries);
+            for (NewsPageResult result : results) {
+                gained |= result.accepted > 0;
+                if (result.articles >= newsPageSize) {
+                    exhausted.remove(result.request.query);
+                }
+            }
+            activeQueries.removeAll(exhausted);
             
-            for (JsonElement articleElement : articles) {
-                JsonObject article = articleElement.getAsJsonObject();
-                
-                String title = getJsonString(article, "title");
-                String description = getJsonString(article, "description");
-                String source = article.getAsJsonObject("source").get("name").getAsString();
-                String publishedAt = getJsonString(article, "publishedAt");
-                String url_link = getJsonString(article, "url");
-                
-                int relevanceScore = calculateRelevanceScore(title + " " + description);
-                
-                headlines.add(new NewsHeadline(title, description, source, publishedAt, url_link, relevanceScore));
+            // Stop once no remaining article can beat any heap floor, or pages stop contributing
+            if (allSaturated(selector, personalSelectors.values())) {
+                logger.info("Heap floor reaches the maximum possible score, stopping early");
+                break;
+            }
+            pagesWithoutGain = gained ? 0 : pagesWithoutGain + 1;
+            if (selector.isFull() && pagesWithoutGain >= newsStalePages) {
+                logger.info("No improvement from the last {} page windows, stopping early", pagesWithoutGain);
+                break;
             }
         }
         
-        // Sort by relevance score
-        headlines.sort((h1, h2) -> Integer.compare(h2.relevanceScore, h1.relevanceScore));
-        
-        logger.info("Fetched {} news headlines", headlines.size());
-        return headlines.subList(0, Math.min(10, headlines.size())); // Top 10
+        logger.info("Scored {} articles, dropped {} near-duplicates, kept top {} news headlines",
+                selector.articlesSeen(), selector.duplicatesDropped(), selector.size());
+        return selector.top();
     }
 
-    private String getJsonString(JsonObject obj, String key) {
-        JsonElement element = obj.get(key);
-        return (element != null && !element.isJsonNull()) ? element.getAsString() : "";
-    }
-
-    private int calculateRelevanceScore(String text) {
-        String[] highImpactKeywords = {
-            "federal reserve", "fed", "interest rate", "inflation", "recession",
-            "earnings", "gdp", "unemployment", "market crash", "rally",
-            "stimulus", "trade war", "geopolitical"
-        };
-        
-        String[] mediumImpactKeywords = {
-            "stock market", "dow jones", "nasdaq", "s&p 500", "wall street",
-            "investor", "trading", "economic", "financial"
-        };
-        
-        String textLower = text.toLowerCase();
-        int score = 0;
-        
-        for (String keyword : highImpactKeywords) {
-            if (textLower.contains(keyword)) {
-                score += 3;
-            }
+    private boolean allSaturated(HeadlineSelector selector, Collection<HeadlineSelector> personalSelectors) {
+        int maxScore = relevanceScorer.maxScore();
+        if (!selector.isSaturated(maxScore)) {
+            return false;
         }
-        
-        for (String keyword : mediumImpactKeywords) {
-            if (textLower.contains(keyword)) {
-                score += 1;
+        for (HeadlineSelector personalSelector : personalSelectors) {
+            if (!personalSelector.isSaturated(maxScore)) {
+                return false;
             }
         }
-        
-        return score;
+        return true;
     }
 
-    private String generateHTMLReport(List<MarketData> marketData, List<NewsHeadline> headlines) {
-        logger.info("Generating HTML report...");
-        
-        LocalDateTime now = LocalDateTime.now();
-        String timestamp = now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        
-        StringBuilder html = new StringBuilder();
-        html.append("<!DOCTYPE html>\n")
-            .append("<html>\n")
-            .append("<head>\n")
-            .append("    <title>Morning Market Report - ").append(now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"))).append("</title>\n")
-            .append("    <style>\n")
-            .append("        body { font-family: Arial, sans-serif; margin: 20px; line-height: 1.6; }\n")
-            .append("        .header { background-color: #1f4e79; color: white; padding: 20px; text-align: center; border-radius: 8px; }\n")
-            .append("        .section { margin: 20px 0; }\n")
-            .append("        .data-table { border-collapse: collapse; width: 100%; margin: 10px 0; }\n")
-            .append("        .data-table th, .data-table td { border: 1px solid #ddd; padding: 12px; text-align: left; }\n")
-            .append("        .data-table th { background-color: #f2f2f2; font-weight: bold; }\n")
-            .append("        .positive { color: #28a745; font-weight: bold; }\n")
-            .append("        .negative { color: #dc3545; font-weight: bold; }\n")
-            .append("        .news-item { border-left: 4px solid #1f4e79; padding: 15px; margin: 15px 0; background-color: #f8f9fa; border-radius: 4px; }\n")
-            .append("        .news-title { font-size: 1.1em; font-weight: bold; margin-bottom: 8px; }\n")
-            .append("        .news-meta { color: #666; font-size: 0.9em; }\n")
-            .append("        .footer { color: #666; font-size: 0.9em; margin-top: 30px; text-align: center; }\n")
-            .append("        .summary-box { background-color: #e9ecef; padding: 15px; border-radius: 8px; margin: 15px 0; }\n")
-            .append("    </style>\n")
-            .append("</head>\n")
-            .append("<body>\n");
-
-        // Header
-        html.append("    <div class=\"header\">\n")
-            .append("        <h1>🌅 Morning Market Report</h1>\n")
-            .append("        <p>Generated: ").append(timestamp).append(" EST</p>\n")
-            .append("    </div>\n");
-
-        // Market Summary
-        html.append("    <div class=\"section\">\n")
-            .append("        <h2>📊 Market Summary</h2>\n")
-            .append("        <div class=\"summary-box\">\n")
-            .append("            <p><strong>Market Sentiment:</strong> ").append(analyzeMarketSentiment(marketData)).append("</p>\n")
-            .append("            <p><strong>Top Mover:</strong> ").append(getTopMover(marketData)).append("</p>\n")
-            .append("            <p><strong>Headlines Tracked:</strong> ").append(headlines.size()).append(" relevant stories</p>\n")
-            .append("            <p><strong>Market Opens:</strong> 9:30 AM EST</p>\n")
-            .append("        </div>\n")
-            .append("    </div>\n");
-
-        // Pre-Market Movements Table
-        html.append("    <div class=\"section\">\n")
-            .append("        <h2>📈 Pre-Market Movements</h2>\n")
-            .append("        <table class=\"data-table\">\n")
-            .append("            <thead>\n")
-            .append("                <tr>\n")
-            .append("                    <th>Symbol</th>\n")
-            .append("                    <th>Name</th>\n")
-            .append("                    <th>Previous Close</th>\n")
-            .append("                    <th>Current Price</th>\n")
-            .append("                    <th>Change ($)</th>\n")
-            .append("                    <th>Change (%)</th>\n")
-            .append("                    <th>Volume</th>\n")
-            .append("                </tr>\n")
-            .append("            </thead>\n")
-            .append("            <tbody>\n");
-
-        // Add market data rows
-        for (MarketData data : marketData) {
-            String changeClass = data.change >= 0 ? "positive" : "negative";
-            String changeSymbol = data.change >= 0 ? "+" : "";
-            
-            html.append("                <tr>\n")
-                .append("                    <td><strong>").append(data.symbol).append("</strong></td>\n")
-                .append("                    <td>").append(truncate(data.name, 40)).append("</td>\n")
-                .append("                    <td>$").append(String.format("%.2f", data.previousClose)).append("</td>\n")
-                .append("                    <td>$").append(String.format("%.2f", data.currentPrice)).append("</td>\n")
-                .append("                    <td class=\"").append(changeClass).append("\">").append(changeSymbol).append("$").append(String.format("%.2f", data.change)).append("</td>\n")
-                .append("                    <td class=\"").append(changeClass).append("\">").append(changeSymbol).append(String.format("%.2f", data.changePercent)).append("%</td>\n")
-                .append("                    <td>").append(formatVolume(data.volume)).append("</td>\n")
-                .append("                </tr>\n");
+    private NewsPageResult fetchNewsPage(NewsProvider newsProvider, NewsPageRequest page, String fromDate,
+                                         HeadlineSelector selector,
+                                         Map<Subscription, HeadlineSelector> personalSelectors) throws IOException {
+        try (RunMetrics.Timing timing = metrics.time("news.page")) {
+            AtomicInteger accepted = new AtomicInteger();
+            int articles = newsProvider.fetchPage(page.query, page.page, newsPageSize, fromDate,
+                    (title, description, source, publishedAt, url) -> {
+                        int relevanceScore = relevanceScorer.score(title, description);
+                        if (selector.offer(title, description, source, publishedAt, url, relevanceScore)) {
+                            accepted.incrementAndGet();
+                        }
+                        for (Map.Entry<Subscription, HeadlineSelector> personal : personalSelectors.entrySet()) {
+                            if (personal.getKey().matches(title, description)
+                                    && personal.getValue().offer(title, description, source, publishedAt, url,
+                                            relevanceScore)) {
+                                accepted.incrementAndGet();
+                            }
+                        }
+                    });
+            timing.success();
+            return new NewsPageResult(page, articles, accepted.get());
         }
+    }
 
-        html.append("            </tbody>\n")
-            .append("        </table>\n")
-            .append("    </div>\n");
-
-        // News Headlines
-        html.append("    <div class=\"section\">\n")
-            .append("        <h2>📰 Overnight Headlines</h2>\n");
+    private static final class NewsPageRequest {
+        final String query;
+        final int page;
 
-        for (NewsHeadline headline : headlines) {
-            String relevanceIcon = headline.relevanceScore > 5 ? "🔥" : "📊";
-            
-            html.append("        <div class=\"news-item\">\n")
-                .append("            <div class=\"news-title\">").append(relevanceIcon).append(" ").append(headline.title).append("</div>\n")
-                .append("            <p>").append(headline.description).append("</p>\n")
-                .append("            <div class=\"news-meta\">\n")
-                .append("                <strong>Source:</strong> ").append(headline.source).append(" | \n")
-                .append("                <strong>Published:</strong> ").append(formatPublishTime(headline.publishedAt)).append(" | \n")
-                .append("                <a href=\"").append(headline.url).append("\" target=\"_blank\">Read More</a>\n")
-                .append("            </div>\n")
-                .append("        </div>\n");
+        NewsPageRequest(String query, int page) {
+            this.query = query;
+            this.page = page;
         }
 
-        html.append("    </div>\n");
-
-        // Footer
-        html.append("    <div class=\"footer\">\n")
-            .append("        <p><em>Generated automatically by GitHub Actions | Data from Yahoo Finance & NewsAPI</em></p>\n")
-            .append("        <p><em>Disclaimer: This report is for informational purposes only and should not be considered investment advice.</em></p>\n")
-            .append("    </div>\n");
+        @Override
+        public String toString() {
+            return "'" + query + "' page " + page;
+        }
+    }
 
-        html.append("</body>\n")
-            .append("</html>");
+    private static final class NewsPageResult {
+        final NewsPageRequest request;
+        final int articles;
+        final int accepted;
 
-        return html.toString();
+        NewsPageResult(NewsPageRequest request, int articles, int accepted) {
+            this.request = request;
+            this.articles = articles;
+            this.accepted = accepted;
+        }
     }
 
-    private String saveReportToFile(String htmlContent) throws IOException {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String filename = "reports/morning_report_" + timestamp + ".html";
-        
-        try (FileWriter writer = new FileWriter(filename)) {
-            writer.write(htmlContent);
+    private HistoryStore recordHistory(List<MarketData> marketData) {
+        try {
+            HistoryStore history = new HistoryStore(historyDir);
+            history.append(LocalDate.now(MARKET_ZONE), marketData);
+            return history;
+        } catch (IOException e) {
+            logger.warn("History store unavailable, trend section will be skipped", e);
+            return null;
         }
-        
-        logger.info("Report saved to: {}", filename);
-        return filename;
     }
 
-    // Helper methods
-    private String analyzeMarketSentiment(List<MarketData> marketData) {
-        if (marketData.isEmpty()) return "Neutral";
-        
-        long positiveCount = marketData.stream().mapToLong(d -> d.change > 0 ? 1 : 0).sum();
-        double positiveRatio = (double) positiveCount / marketData.size();
-        
-        if (positiveRatio > 0.6) return "Positive";
-        else if (positiveRatio < 0.4) return "Negative";
-        else return "Mixed";
+    private void generateHTMLReport(HtmlWriter out, MarketDataBatch marketData, List<NewsHeadline> headlines,
+                                    HistoryStore history) throws IOException {
+        logger.info("Generating HTML report...");
+        try (RunMetrics.Timing timing = metrics.time("render.report")) {
+            renderer.writeReport(out, LocalDateTime.now(), marketData, headlines, history);
+            timing.success();
+        }
     }
 
-    private String getTopMover(List<MarketData> marketData) {
-        if (marketData.isEmpty()) return "N/A";
-        
-        return marketData.stream()
-                .max(Comparator.comparing(d -> Math.abs(d.changePercent)))
-                .map(d -> String.format("%s (%+.2f%%)", d.symbol, d.changePercent))
-                .orElse("N/A");
+    private interface Section {
+        void write(HtmlWriter out) throws IOException;
     }
 
-    private String truncate(String text, int maxLength) {
-        return text.length() > maxLength ? text.substring(0, maxLength) + "..." : text;
+    private static byte[] renderSection(Section section) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (HtmlWriter out = new HtmlWriter(buffer)) {
+            section.write(out);
+        }
+        return buffer.toByteArray();
     }
 
-    private String formatVolume(long volume) {
-        if (volume >= 1_000_000_000) {
-            return String.format("%.1fB", volume / 1_000_000_000.0);
-        } else if (volume >= 1_000_000) {
-            return String.format("%.1fM", volume / 1_000_000.0);
-        } else if (volume >= 1_000) {
-            return String.format("%.1fK", volume / 1_000.0);
-        } else {
-            return String.valueOf(volume);
+    // Compact binary copy of the run next to the report, e.g. reports/morning_report_<timestamp>.snap
+    private String saveSnapshot(String reportPath, List<MarketData> marketData, List<NewsHeadline> headlines)
+            throws IOException {
+        String filename = reportPath.replaceFirst("\\.html$", "") + ReportSnapshot.EXTENSION;
+        try (RunMetrics.Timing timing = metrics.time("report.snapshot")) {
+            byte[] encoded = new ReportSnapshot(System.currentTimeMillis(), marketData, headlines)
+                    .encode(snapshotCompress);
+            Files.write(Paths.get(filename), encoded);
+            metrics.addBytes("report.snapshot", encoded.length);
+            timing.success();
+            logger.info("Snapshot saved to: {} ({} bytes)", filename, encoded.length);
         }
+        return filename;
     }
 
-    private String formatPublishTime(String publishedAt) {
-        try {
-            // Parse ISO date and format to readable time
-            LocalDateTime dateTime = LocalDateTime.parse(publishedAt.replace("Z", ""));
-            return dateTime.format(DateTimeFormatter.ofPattern("HH:mm"));
-        } catch (Exception e) {
-            return publishedAt;
-        }
+    private String newReportFilename() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        return "reports/morning_report_" + timestamp + ".html";
+    }
+
+    private HtmlWriter openReport(String filename) throws IOException {
+        return new HtmlWriter(FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
     }
 }
@@ -0,0 +1,225 @@
+package com.marketreport;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Ranks a snapshot's pre-market movers in one parallel pass over the batch
+// columns: top gainers and losers by pre-market change, gap-ups (liquid names
+// gapping past a threshold) and unusual volume against each symbol's recent
+// average. Each fork-join leaf fills its own bounded heaps, which are merged
+// on the way back up, so no heap is shared between threads.
+public class MoversScanner {
+    // Below this many rows a leaf doesn't split further
+    private static final int LEAF_ROWS = 1024;
+
+    private final int topN;
+    private final double minPrice;
+    private final double gapPercent;
+    private final long minVolume;
+    private final double unusualVolumeRatio;
+
+    public MoversScanner(int topN, double minPrice, double gapPercent, long minVolume, double unusualVolumeRatio) {
+        if (topN < 1) {
+            throw new IllegalArgumentException("topN must be at least 1");
+        }
+        this.topN = topN;
+        this.minPrice = minPrice;
+        this.gapPercent = gapPercent;
+        this.minVolume = minVolume;
+        this.unusualVolumeRatio = unusualVolumeRatio;
+    }
+
+    public static MoversScanner fromEnv() {
+        return new MoversScanner(
+                Math.max(1, EnvConfig.getInt("MOVERS_TOP_N", 10)),
+                EnvConfig.getDouble("MOVERS_MIN_PRICE", 1.0),
+                EnvConfig.getDouble("MOVERS_GAP_PERCENT", 2.0),
+                EnvConfig.getInt("MOVERS_MIN_VOLUME", 100_000),
+                EnvConfig.getDouble("MOVERS_VOLUME_RATIO", 2.0));
+    }
+
+    // Rows of the batch for each ranking, best first
+    public static final class Movers {
+        public final int[] gainers;
+        public final int[] losers;
+        public final int[] gapUps;
+        public final int[] unusualVolume;
+
+        Movers(int[] gainers, int[] losers, int[] gapUps, int[] unusualVolume) {
+            this.gainers = gainers;
+            this.losers = losers;
+            this.gapUps = gapUps;
+            this.unusualVolume = unusualVolume;
+        }
+
+        public boolean isEmpty() {
+            return gainers.length == 0 && losers.length == 0 && gapUps.length == 0 && unusualVolume.length == 0;
+        }
+    }
+
+    // volumeRatio holds each row's volume relative to its recent average (NaN when
+    // unknown); pass null to skip the unusual volume ranking
+    public Movers scan(MarketDataBatch batch, double[] volumeRatio) {
+        Heaps heaps = batch.size() <= LEAF_ROWS
+                ? scanRange(batch, volumeRatio, 0, batch.size())
+                : ForkJoinPool.commonPool().invoke(new ScanTask(batch, volumeRatio, 0, batch.size()));
+        return new Movers(heaps.gainers.rowsBestFirst(), heaps.losers.rowsBestFirst(),
+                heaps.gapUps.rowsBestFirst(), heaps.unusualVolume.rowsBestFirst());
+    }
+
+    private Heaps scanRange(MarketDataBatch batch, double[] volumeRatio, int from, int to) {
+        Heaps heaps = new Heaps(topN);
+        for (int row = from; row < to; row++) {
+            if (batch.currentPrice[row] < minPrice) continue;
+
+            if (volumeRatio != null && volumeRatio[row] >= unusualVolumeRatio) {
+                heaps.unusualVolume.offer(row, volumeRatio[row]);
+            }
+            // Symbols without pre-market trades have no gap to rank
+            if (batch.preMarketPrice[row] <= 0) continue;
+
+            double move = batch.preMarketChangePercent[row];
+            if (move > 0) {
+                heaps.gainers.offer(row, move);
+                if (move >= gapPercent && batch.volume[row] >= minVolume) {
+                    heaps.gapUps.offer(row, move);
+                }
+            } else if (move < 0) {
+                heaps.losers.offer(row, -move);
+            }
+        }
+        return heaps;
+    }
+
+    private final class ScanTask extends RecursiveTask<Heaps> {
+        private final MarketDataBatch batch;
+        private final double[] volumeRatio;
+        private final int from;
+        private final int to;
+
+        ScanTask(MarketDataBatch batch, double[] volumeRatio, int from, int to) {
+            this.batch = batch;
+            this.volumeRatio = volumeRatio;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Heaps compute() {
+            if (to - from <= LEAF_ROWS) {
+                return scanRange(batch, volumeRatio, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(batch, volumeRatio, from, middle);
+            left.fork();
+            Heaps right = new ScanTask(batch, volumeRatio, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static final class Heaps {
+        final RowHeap gainers;
+        final RowHeap losers;
+        final RowHeap gapUps;
+        final RowHeap unusualVolume;
+
+        Heaps(int capacity) {
+            this.gainers = new RowHeap(capacity);
+            this.losers = new RowHeap(capacity);
+            this.gapUps = new RowHeap(capacity);
+            this.unusualVolume = new RowHeap(capacity);
+        }
+
+        Heaps merge(Heaps other) {
+            gainers.mergeFrom(other.gainers);
+            losers.mergeFrom(other.losers);
+            gapUps.mergeFrom(other.gapUps);
+            unusualVolume.mergeFrom(other.unusualVolume);
+            return this;
+        }
+    }
+
+    // Bounded min-heap of (row, key) pairs in parallel primitive arrays. The worst
+    // entry sits at the root; on equal keys the lower row ranks higher, so results
+    // don't depend on how the rows were split.
+    private static final class RowHeap {
+        private final int[] rows;
+        private final double[] keys;
+        private int size;
+
+        RowHeap(int capacity) {
+            this.rows = new int[capacity];
+            this.keys = new double[capacity];
+        }
+
+        void offer(int row, double key) {
+            if (size < rows.length) {
+                rows[size] = row;
+                keys[size] = key;
+                siftUp(size++);
+            } else if (worse(rows[0], keys[0], row, key)) {
+                rows[0] = row;
+                keys[0] = key;
+                siftDown(0);
+            }
+        }
+
+        void mergeFrom(RowHeap other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.rows[i], other.keys[i]);
+            }
+        }
+
+        int[] rowsBestFirst() {
+            // Insertion sort: the heap holds at most topN entries
+            int[] sortedRows = new int[size];
+            double[] sortedKeys = new double[size];
+            for (int i = 0; i < size; i++) {
+                int j = i;
+                while (j > 0 && worse(sortedRows[j - 1], sortedKeys[j - 1], rows[i], keys[i])) {
+                    sortedRows[j] = sortedRows[j - 1];
+                    sortedKeys[j] = sortedKeys[j - 1];
+                    j--;
+                }
+                sortedRows[j] = rows[i];
+                sortedKeys[j] = keys[i];
+            }
+            return sortedRows;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!worse(rows[index], keys[index], rows[parent], keys[parent])) break;
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) break;
+                if (child + 1 < size && worse(rows[child + 1], keys[child + 1], rows[child], keys[child])) {
+                    child++;
+                }
+                if (!worse(rows[child], keys[child], rows[index], keys[index])) break;
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int row = rows[a];
+            rows[a] = rows[b];
+            rows[b] = row;
+            double key = keys[a];
+            keys[a] = keys[b];
+            keys[b] = key;
+        }
+
+        private static boolean worse(int rowA, double keyA, int rowB, double keyB) {
+            return keyA < keyB || (keyA == keyB && rowA > rowB);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.marketreport;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Clusters near-duplicate texts by 64-bit SimHash fingerprint. Fingerprints
+// are split into maxDistance + 1 bands, so any two within maxDistance bits
+// share at least one identical band (pigeonhole); the band tables act as an
+// LSH index and only those candidates are compared. Each cluster only keeps
+// its anchor fingerprint and best score, so memory is a few primitives per
+// cluster. Callers synchronise on the index when sharing it across threads.
+public class NearDuplicateIndex {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int maxDistance;
+    private final int bands;
+    private final int bandBits;
+    private final Map<Long, int[]> bandBuckets = new HashMap<>();
+
+    private long[] fingerprints = new long[64];
+    private int[] bestScores = new int[64];
+    private int clusterCount;
+
+    public NearDuplicateIndex(int maxDistance) {
+        if (maxDistance < 0 || maxDistance > 7) {
+            throw new IllegalArgumentException("maxDistance must be between 0 and 7");
+        }
+        this.maxDistance = maxDistance;
+        this.bands = maxDistance + 1;
+        this.bandBits = 64 / bands;
+    }
+
+    // SimHash over lower-cased word unigrams and bigrams of both fields
+    public static long fingerprint(CharSequence title, CharSequence description) {
+        int[] weights = new int[64];
+        long previous = accumulate(title, weights, 0L);
+        accumulate(description, weights, previous);
+
+        long fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    private static long accumulate(CharSequence text, int[] weights, long previousToken) {
+        long token = FNV_OFFSET;
+        boolean inToken = false;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token = (token ^ Character.toLowerCase(c)) * FNV_PRIME;
+                inToken = true;
+            } else if (inToken) {
+                addFeature(weights, mix(token));
+                if (previousToken != 0L) {
+                    addFeature(weights, mix(previousToken * 31 + token));
+                }
+                previousToken = token;
+                token = FNV_OFFSET;
+                inToken = false;
+            }
+        }
+        return previousToken;
+    }
+
+    private static void addFeature(int[] weights, long hash) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += ((hash >>> bit) & 1L) != 0 ? 1 : -1;
+        }
+    }
+
+    // MurmurHash3 finaliser, spreads FNV output across all 64 bits
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // Returns the cluster of a near-duplicate fingerprint, or creates a new empty cluster
+    public int cluster(long fingerprint) {
+        for (int band = 0; band < bands; band++) {
+            int[] bucket = bandBuckets.get(bandKey(band, fingerprint));
+            if (bucket == null) continue;
+            for (int i = 1; i <= bucket[0]; i++) {
+                int cluster = bucket[i];
+                if (Long.bitCount(fingerprints[cluster] ^ fingerprint) <= maxDistance) {
+                    return cluster;
+                }
+            }
+        }
+
+        int cluster = clusterCount++;
+        if (cluster == fingerprints.length) {
+            fingerprints = Arrays.copyOf(fingerprints, cluster * 2);
+            bestScores = Arrays.copyOf(bestScores, cluster * 2);
+        }
+        fingerprints[cluster] = fingerprint;
+        bestScores[cluster] = Integer.MIN_VALUE;
+        for (int band = 0; band < bands; band++) {
+            bandBuckets.merge(bandKey(band, fingerprint), new int[] {1, cluster}, NearDuplicateIndex::append);
+        }
+        return cluster;
+    }
+
+    // Best score seen in the cluster, Integer.MIN_VALUE for a new cluster
+    public int bestScore(int cluster) {
+        return bestScores[cluster];
+    }
+
+    public void setBestScore(int cluster, int score) {
+        bestScores[cluster] = score;
+    }
+
+    private long bandKey(int band, long fingerprint) {
+        int bits = band == bands - 1 ? 64 - band * bandBits : bandBits;
+        long value = (fingerprint >>> (band * bandBits)) & (bits == 64 ? -1L : (1L << bits) - 1);
+        // Bands are at most 32 bits wide when there is more than one, so the tag never overlaps
+        return value ^ ((long) band << 58);
+    }
+
+    // Bucket layout: [count, cluster ids...]
+    private static int[] append(int[] bucket, int[] single) {
+        int count = bucket[0];
+        if (count + 1 == bucket.length) {
+            bucket = Arrays.copyOf(bucket, bucket.length * 2);
+        }
+        bucket[count + 1] = single[1];
+        bucket[0] = count + 1;
+        return bucket;
+    }
+}
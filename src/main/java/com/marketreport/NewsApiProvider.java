@@ -0,0 +1,58 @@
+package com.marketreport;
+
+import com.google.gson.stream.JsonReader;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+
+// Articles from NewsAPI's /v2/everything endpoint, sorted by relevancy
+public class NewsApiProvider implements NewsProvider {
+    public static final String HOST = "newsapi.org";
+
+    private final OkHttpClient httpClient;
+    private final String apiKey;
+
+    public NewsApiProvider(OkHttpClient httpClient, String apiKey) {
+        this.httpClient = httpClient;
+        this.apiKey = apiKey;
+    }
+
+    @Override
+    public String host() {
+        return HOST;
+    }
+
+    @Override
+    public int fetchPage(String query, int page, int pageSize, String fromDate,
+                         ResponseParsers.ArticleHandler handler) throws IOException {
+        HttpUrl url = new HttpUrl.Builder()
+                .scheme("https")
+                .host(HOST)
+                .addPathSegments("v2/everything")
+                .addQueryParameter("q", query)
+                .addQueryParameter("from", fromDate)
+                .addQueryParameter("sortBy", "relevancy")
+                .addQueryParameter("language", "en")
+                .addQueryParameter("pageSize", String.valueOf(pageSize))
+                .addQueryParameter("page", String.valueOf(page))
+                .build();
+
+        // Key goes in a header so it stays out of the cache key and the on-disk journal
+        Request request = new Request.Builder()
+                .url(url)
+                .addHeader("X-Api-Key", apiKey)
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("NewsAPI returned " + response.code());
+            }
+            try (JsonReader reader = new JsonReader(response.body().charStream())) {
+                return ResponseParsers.parseNewsArticles(reader, handler);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.marketreport;
+
+import java.io.IOException;
+
+// Source of news articles, fetched one page at a time so the caller can stop
+// paging once no further article can improve the selected headlines.
+public interface NewsProvider {
+    // Key for per-host concurrency limits in the fetch engine
+    String host();
+
+    // Streams one page of results into the handler and returns the number of articles on it
+    int fetchPage(String query, int page, int pageSize, String fromDate, ResponseParsers.ArticleHandler handler)
+            throws IOException;
+}
@@ -0,0 +1,25 @@
+package com.marketreport;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Daemon platform thread pools, shared by both versions of TaskThreads
+final class PlatformThreads {
+    private PlatformThreads() {
+    }
+
+    // Threads are named <name>-N; threads <= 0 means grow on demand
+    static ExecutorService newExecutor(String name, int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return threads > 0
+                ? Executors.newFixedThreadPool(threads, factory)
+                : Executors.newCachedThreadPool(factory);
+    }
+}
@@ -0,0 +1,194 @@
+package com.marketreport;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Offline provider for load tests and benchmarks. Serves recorded responses
+// from REPLAY_DIR when present and deterministic synthetic ones otherwise,
+// always through the real streaming parsers and the fetch engine:
+//   quotes/<SYMBOL>.json  a Yahoo v8 chart response
+//   news/page-<n>.json    a NewsAPI /v2/everything response
+// Every simulated request sleeps for a log-normal latency fitted to the
+// configured median and p99, and fails with the configured probability.
+// Replay replaces the HTTP layer: ResilientHttp's retries, hedges and circuit
+// breakers, OkHttp and its cache are not involved.
+public class ReplayProvider implements MarketDataProvider, NewsProvider {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayProvider.class);
+    private static final double Z_99 = 2.3263;
+
+    private static final String[] HEADLINES = {
+        "Federal Reserve signals %s as inflation cools",
+        "Stocks rally as %s earnings beat expectations",
+        "Treasury yields climb ahead of %s data",
+        "Oil slides on %s demand worries",
+        "Investors weigh %s outlook as recession fears ease",
+        "Wall Street futures edge higher after %s report",
+        "Tech shares lead Nasdaq gains on %s optimism",
+        "Dollar steadies as traders eye %s decision",
+    };
+    private static final String[] TOPICS = {
+        "rate cut", "GDP", "jobs", "retail sales", "chipmaker", "bank", "trade war", "housing",
+    };
+    private static final String[] SOURCES = {"Reuters", "Bloomberg", "CNBC", "MarketWatch", "AP"};
+
+    private final FetchEngine fetchEngine;
+    private final Path directory;
+    private final int newsPages;
+    private final double medianLatencyMillis;
+    private final double latencySigma;
+    private final double errorRate;
+    private final long seed;
+    private final ConcurrentHashMap<String, String> recorded = new ConcurrentHashMap<>();
+
+    public ReplayProvider(FetchEngine fetchEngine, Path directory, int newsPages,
+                          double medianLatencyMillis, double p99LatencyMillis, double errorRate, long seed) {
+        this.fetchEngine = fetchEngine;
+        this.directory = directory;
+        this.newsPages = newsPages;
+        this.medianLatencyMillis = Math.max(0, medianLatencyMillis);
+        this.latencySigma = medianLatencyMillis > 0 && p99LatencyMillis > medianLatencyMillis
+                ? Math.log(p99LatencyMillis / medianLatencyMillis) / Z_99 : 0.0;
+        this.errorRate = errorRate;
+        this.seed = seed;
+    }
+
+    public static ReplayProvider fromEnv(FetchEngine fetchEngine) {
+        String dir = EnvConfig.getString("REPLAY_DIR", "");
+        ReplayProvider provider = new ReplayProvider(fetchEngine,
+                dir.isEmpty() ? null : Paths.get(dir),
+                EnvConfig.getInt("REPLAY_NEWS_PAGES", 5),
+                EnvConfig.getDouble("REPLAY_LATENCY_MEDIAN_MS", 20.0),
+                EnvConfig.getDouble("REPLAY_LATENCY_P99_MS", 200.0),
+                EnvConfig.getDouble("REPLAY_ERROR_RATE", 0.01),
+                EnvConfig.getInt("REPLAY_SEED", 42));
+        logger.info("Replaying provider responses from {}", dir.isEmpty() ? "synthetic data" : dir);
+        return provider;
+    }
+
+    @Override
+    public String host() {
+        return "replay";
+    }
+
+    @Override
+    public List<MarketData> fetchQuotes(List<String> symbols) throws InterruptedException {
+        return fetchEngine.fetchAll(host(), symbols, this::fetchQuote);
+    }
+
+    @Override
+    public int fetchPage(String query, int page, int pageSize, String fromDate,
+                         ResponseParsers.ArticleHandler handler) throws IOException {
+        simulateRequest();
+        String body = read("news/page-" + page + ".json");
+        if (body == null) {
+            body = syntheticNewsPage(query, page, pageSize);
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(body))) {
+            return ResponseParsers.parseNewsArticles(reader, handler);
+        }
+    }
+
+    private MarketData fetchQuote(String symbol) throws IOException {
+        simulateRequest();
+        String body = read("quotes/" + symbol + ".json");
+        if (body == null) {
+            body = syntheticChart(symbol);
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(body))) {
+            return ResponseParsers.parseYahooChart(reader, symbol);
+        }
+    }
+
+    private void simulateRequest() throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double latencyMillis = medianLatencyMillis * Math.exp(latencySigma * random.nextGaussian());
+        try {
+            TimeUnit.MICROSECONDS.sleep((long) (latencyMillis * 1_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during simulated latency");
+        }
+        if (random.nextDouble() < errorRate) {
+            throw new IOException("Injected replay failure");
+        }
+    }
+
+    // Recorded responses are read once and kept; null when there is no recording
+    private String read(String relativePath) throws IOException {
+        if (directory == null) return null;
+
+        String cached = recorded.get(relativePath);
+        if (cached != null) return cached;
+
+        Path file = directory.resolve(relativePath);
+        if (!Files.isRegularFile(file)) return null;
+        String body = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        recorded.put(relativePath, body);
+        return body;
+    }
+
+    // Only the chart meta fields the live endpoint returns; like live data it has no pre-market prices
+    private String syntheticChart(String symbol) throws IOException {
+        Random random = new Random(seed * 31 + symbol.hashCode());
+        double previousClose = 10 + random.nextDouble() * 490;
+        double price = previousClose * (1 + random.nextGaussian() * 0.02);
+
+        StringWriter out = new StringWriter(512);
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject().name("chart").beginObject().name("result").beginArray()
+            .beginObject().name("meta").beginObject()
+            .name("symbol").value(symbol)
+            .name("longName").value(symbol + " Holdings Inc.")
+            .name("regularMarketPrice").value(round(price))
+            .name("previousClose").value(round(previousClose))
+            .name("regularMarketVolume").value((long) (random.nextDouble() * 50_000_000))
+            .endObject().endObject()
+            .endArray().name("error").nullValue().endObject().endObject();
+        json.flush();
+        return out.toString();
+    }
+
+    // Pages past REPLAY_NEWS_PAGES are empty; a few stories repeat so deduplication has work to do
+    private String syntheticNewsPage(String query, int page, int pageSize) throws IOException {
+        Random random = new Random(seed * 31 + query.hashCode() * 17L + page);
+        StringWriter out = new StringWriter(pageSize * 512);
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject().name("status").value("ok").name("articles").beginArray();
+        for (int i = 0; page <= newsPages && i < pageSize; i++) {
+            String topic = TOPICS[random.nextInt(TOPICS.length)];
+            String title = String.format(HEADLINES[random.nextInt(HEADLINES.length)], topic);
+            String source = SOURCES[random.nextInt(SOURCES.length)];
+            json.beginObject()
+                .name("source").beginObject().name("name").value(source).endObject()
+                .name("title").value(title)
+                .name("description").value("Markets react to the latest " + topic
+                        + " news as investors position ahead of the open.")
+                .name("url").value("https://example.com/" + page + "/" + i)
+                .name("publishedAt").value(String.format("2024-01-01T%02d:%02d:00Z", random.nextInt(24), random.nextInt(60)))
+                .endObject();
+        }
+        json.endArray().endObject();
+        json.flush();
+        return out.toString();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,557 @@
+package com.marketreport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.marketreport.HtmlWriter.fragment;
+
+// Renders the HTML report section by section into an HtmlWriter. All static
+// markup is precompiled to UTF-8 fragments once; per-row output only copies
+// fragments, encodes text and formats fixed-point numbers.
+public class ReportRenderer {
+    private static final Logger logger = LoggerFactory.getLogger(ReportRenderer.class);
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    // Two high-impact keywords. The substring scorer scored "Federal Reserve" 6 on
+    // its own (it matched "fed" inside it); with word boundaries it takes a second
+    // keyword, which keeps about the same share of headlines hot (19 of the 96
+    // fixture articles, against 20 before).
+    private static final int HOT_RELEVANCE_SCORE = 6;
+
+    private static final byte[] HEAD_OPEN = fragment(
+            "<!DOCTYPE html>\n" +
+            "<html>\n" +
+            "<head>\n" +
+            "    <title>Morning Market Report - ");
+    private static final byte[] HEAD_CLOSE = fragment(
+            "</title>\n" +
+            "    <style>\n" +
+            "        body { font-family: Arial, sans-serif; margin: 20px; line-height: 1.6; }\n" +
+            "        .header { background-color: #1f4e79; color: white; padding: 20px; text-align: center; border-radius: 8px; }\n" +
+            "        .section { margin: 20px 0; }\n" +
+            "        .data-table { border-collapse: collapse; width: 100%; margin: 10px 0; }\n" +
+            "        .data-table th, .data-table td { border: 1px solid #ddd; padding: 12px; text-align: left; }\n" +
+            "        .data-table th { background-color: #f2f2f2; font-weight: bold; }\n" +
+            "        .positive { color: #28a745; font-weight: bold; }\n" +
+            "        .negative { color: #dc3545; font-weight: bold; }\n" +
+            "        .news-item { border-left: 4px solid #1f4e79; padding: 15px; margin: 15px 0; background-color: #f8f9fa; border-radius: 4px; }\n" +
+            "        .news-title { font-size: 1.1em; font-weight: bold; margin-bottom: 8px; }\n" +
+            "        .news-meta { color: #666; font-size: 0.9em; }\n" +
+            "        .footer { color: #666; font-size: 0.9em; margin-top: 30px; text-align: center; }\n" +
+            "        .summary-box { background-color: #e9ecef; padding: 15px; border-radius: 8px; margin: 15px 0; }\n" +
+            "    </style>\n" +
+            "</head>\n" +
+            "<body>\n" +
+            "    <div class=\"header\">\n" +
+            "        <h1>🌅 Morning Market Report</h1>\n" +
+            "        <p>Generated: ");
+    private static final byte[] HEADER_CLOSE = fragment(
+            " EST</p>\n" +
+            "    </div>\n");
+
+    private static final byte[] SUMMARY_SENTIMENT = fragment(
+            "    <div class=\"section\">\n" +
+            "        <h2>📊 Market Summary</h2>\n" +
+            "        <div class=\"summary-box\">\n" +
+            "            <p><strong>Market Sentiment:</strong> ");
+    private static final byte[] SUMMARY_TOP_MOVER = fragment(
+            "</p>\n" +
+            "            <p><strong>Top Mover:</strong> ");
+    private static final byte[] SUMMARY_HEADLINES = fragment(
+            "</p>\n" +
+            "            <p><strong>Headlines Tracked:</strong> ");
+    private static final byte[] SUMMARY_CLOSE = fragment(
+            " relevant stories</p>\n" +
+            "            <p><strong>Market Opens:</strong> 9:30 AM EST</p>\n" +
+            "        </div>\n" +
+            "    </div>\n");
+
+    private static final byte[] MARKET_TABLE_OPEN = fragment(
+            "    <div class=\"section\">\n" +
+            "        <h2>📈 Pre-Market Movements</h2>\n" +
+            "        <table class=\"data-table\">\n" +
+            "            <thead>\n" +
+            "                <tr>\n" +
+            "                    <th>Symbol</th>\n" +
+            "                    <th>Name</th>\n" +
+            "                    <th>Previous Close</th>\n" +
+            "                    <th>Current Price</th>\n" +
+            "                    <th>Change ($)</th>\n" +
+            "                    <th>Change (%)</th>\n" +
+            "                    <th>Volume</th>\n" +
+            "                </tr>\n" +
+            "            </thead>\n" +
+            "            <tbody>\n");
+    private static final byte[] TABLE_CLOSE = fragment(
+            "            </tbody>\n" +
+            "        </table>\n" +
+            "    </div>\n");
+
+    private static final byte[] ROW_SYMBOL = fragment(
+            "                <tr>\n" +
+            "                    <td><strong>");
+    private static final byte[] ROW_NAME = fragment("</strong></td>\n                    <td>");
+    private static final byte[] ROW_PREVIOUS_CLOSE = fragment("</td>\n                    <td>$");
+    private static final byte[] ROW_CURRENT_PRICE = fragment("</td>\n                    <td>$");
+    private static final byte[] ROW_CHANGE_POSITIVE = fragment("</td>\n                    <td class=\"positive\">+$");
+    private static final byte[] ROW_CHANGE_NEGATIVE = fragment("</td>\n                    <td class=\"negative\">$");
+    private static final byte[] ROW_PERCENT_POSITIVE = fragment("</td>\n                    <td class=\"positive\">+");
+    private static final byte[] ROW_PERCENT_NEGATIVE = fragment("</td>\n                    <td class=\"negative\">");
+    private static final byte[] ROW_VOLUME = fragment("%</td>\n                    <td>");
+    private static final byte[] ROW_CLOSE = fragment(
+            "</td>\n" +
+            "                </tr>\n");
+    private static final byte[] ELLIPSIS = fragment("...");
+
+    private static final byte[] TREND_TABLE_OPEN = fragment(
+            "    <div class=\"section\">\n" +
+            "        <h2>📉 Trends</h2>\n" +
+            "        <table class=\"data-table\">\n" +
+            "            <thead>\n" +
+            "                <tr>\n" +
+            "                    <th>Symbol</th>\n" +
+            "                    <th>5-Day</th>\n" +
+            "                    <th>20-Day</th>\n" +
+            "                    <th>50-Day</th>\n" +
+            "                    <th>Volume vs 20-Day Avg</th>\n" +
+            "                </tr>\n" +
+            "            </thead>\n" +
+            "            <tbody>\n");
+    private static final byte[] TREND_SYMBOL_CLOSE = fragment("</strong></td>\n");
+    private static final byte[] TREND_CELL_EMPTY = fragment("                    <td>—</td>\n");
+    private static final byte[] TREND_CELL_POSITIVE = fragment("                    <td class=\"positive\">");
+    private static final byte[] TREND_CELL_NEGATIVE = fragment("                    <td class=\"negative\">");
+    private static final byte[] TREND_CELL_CLOSE = fragment("%</td>\n");
+    private static final byte[] TREND_VOLUME_OPEN = fragment("                    <td>");
+    private static final byte[] TREND_VOLUME_EMPTY = fragment("—");
+    private static final byte[] TREND_ROW_CLOSE = fragment(
+            "x</td>\n" +
+            "                </tr>\n");
+    private static final byte[] TREND_ROW_CLOSE_EMPTY = fragment(
+            "</td>\n" +
+            "                </tr>\n");
+
+    private static final byte[] MOVERS_OPEN = fragment(
+            "    <div class=\"section\">\n" +
+            "        <h2>🚀 Pre-Market Movers</h2>\n");
+    private static final byte[] VOLUME_MOVERS_OPEN = fragment(
+            "    <div class=\"section\">\n" +
+            "        <h2>🚀 Movers</h2>\n");
+    private static final byte[] MOVERS_LIST_OPEN = fragment("        <h3>");
+    private static final byte[] MOVERS_TABLE_OPEN = fragment(
+            "</h3>\n" +
+            "        <table class=\"data-table\">\n" +
+            "            <thead>\n" +
+            "                <tr>\n" +
+            "                    <th>Symbol</th>\n" +
+            "                    <th>Name</th>\n" +
+            "                    <th>Pre-Market</th>\n" +
+            "                    <th>Change (%)</th>\n" +
+            "                    <th>Volume</th>\n" +
+            "                    <th>Volume vs Avg</th>\n" +
+            "                </tr>\n" +
+            "            </thead>\n" +
+            "            <tbody>\n");
+    private static final byte[] MOVERS_TABLE_CLOSE = fragment(
+            "            </tbody>\n" +
+            "        </table>\n");
+    private static final byte[] MOVERS_PRICE = fragment("</td>\n                    <td>$");
+    private static final byte[] MOVERS_CELL_EMPTY = fragment("</td>\n                    <td>—");
+    private static final byte[] MOVERS_RATIO = fragment("</td>\n                    <td>");
+
+    private static final byte[] NEWS_OPEN = fragment(
+            "    <div class=\"section\">\n" +
+            "        <h2>📰 Overnight Headlines</h2>\n");
+    private static final byte[] NEWS_ITEM_HOT = fragment(
+            "        <div class=\"news-item\">\n" +
+            "            <div class=\"news-title\">🔥 ");
+    private static final byte[] NEWS_ITEM = fragment(
+            "        <div class=\"news-item\">\n" +
+            "            <div class=\"news-title\">📊 ");
+    private static final byte[] NEWS_DESCRIPTION = fragment(
+            "</div>\n" +
+            "            <p>");
+    private static final byte[] NEWS_SOURCE = fragment(
+            "</p>\n" +
+            "            <div class=\"news-meta\">\n" +
+            "                <strong>Source:</strong> ");
+    private static final byte[] NEWS_PUBLISHED = fragment(
+            " | \n" +
+            "                <strong>Published:</strong> ");
+    private static final byte[] NEWS_LINK = fragment(
+            " | \n" +
+            "                <a href=\"");
+    private static final byte[] NEWS_ITEM_CLOSE = fragment(
+            "\" target=\"_blank\">Read More</a>\n" +
+            "            </div>\n" +
+            "        </div>\n");
+    private static final byte[] SECTION_CLOSE = fragment("    </div>\n");
+
+    private static final byte[] FOOTER = fragment(
+            "    <div class=\"footer\">\n" +
+            "        <p><em>Generated automatically by GitHub Actions | Data from Yahoo Finance & NewsAPI</em></p>\n" +
+            "        <p><em>Disclaimer: This report is for informational purposes only and should not be considered investment advice.</em></p>\n" +
+            "    </div>\n" +
+            "</body>\n" +
+            "</html>");
+
+    // Compact email body: inline styles only, since mail clients drop <style> blocks
+    private static final byte[] EMAIL_HEAD = fragment(
+            "<!DOCTYPE html>\n" +
+            "<html>\n" +
+            "<head><meta charset=\"utf-8\"><title>Morning Market Report - ");
+    private static final byte[] EMAIL_TITLE = fragment(
+            "</title></head>\n" +
+            "<body style=\"font-family: Arial, sans-serif; line-height: 1.5;\">\n" +
+            "<h2 style=\"color: #1f4e79;\">🌅 Morning Market Report - ");
+    private static final byte[] EMAIL_SENTIMENT = fragment(
+            "</h2>\n" +
+            "<p><strong>Market Sentiment:</strong> ");
+    private static final byte[] EMAIL_TOP_MOVER = fragment(" | <strong>Top Mover:</strong> ");
+    private static final byte[] EMAIL_SYMBOLS = fragment(" | <strong>Symbols:</strong> ");
+    private static final byte[] EMAIL_TABLE_OPEN = fragment(
+            "</p>\n" +
+            "<table style=\"border-collapse: collapse;\">\n" +
+            "<tr><th align=\"left\">Symbol</th><th align=\"right\">Price</th><th align=\"right\">Change (%)</th></tr>\n");
+    private static final byte[] EMAIL_ROW_SYMBOL = fragment("<tr><td style=\"padding: 2px 12px 2px 0;\"><strong>");
+    private static final byte[] EMAIL_ROW_PRICE = fragment("</strong></td><td align=\"right\">$");
+    private static final byte[] EMAIL_ROW_POSITIVE = fragment("</td><td align=\"right\" style=\"color: #28a745;\">");
+    private static final byte[] EMAIL_ROW_NEGATIVE = fragment("</td><td align=\"right\" style=\"color: #dc3545;\">");
+    private static final byte[] EMAIL_ROW_CLOSE = fragment("%</td></tr>\n");
+    private static final byte[] EMAIL_NEWS_OPEN = fragment(
+            "</table>\n" +
+            "<p><strong>📰 Top Headlines</strong></p>\n" +
+            "<ul>\n");
+    private static final byte[] EMAIL_NEWS_ITEM = fragment("<li><a href=\"");
+    private static final byte[] EMAIL_NEWS_TITLE = fragment("\">");
+    private static final byte[] EMAIL_NEWS_SOURCE = fragment("</a> (");
+    private static final byte[] EMAIL_NEWS_CLOSE = fragment(")</li>\n");
+    private static final byte[] EMAIL_ATTACHMENT = fragment(
+            "</ul>\n" +
+            "<p style=\"color: #666;\">The full report is attached as ");
+    private static final byte[] EMAIL_CLOSE = fragment(
+            ".</p>\n" +
+            "</body>\n" +
+            "</html>");
+
+    private static final int NAME_MAX_LENGTH = 40;
+    private static final int VOLUME_RATIO_DAYS = 20;
+
+    private final MoversScanner moversScanner;
+
+    public ReportRenderer() {
+        this(MoversScanner.fromEnv());
+    }
+
+    public ReportRenderer(MoversScanner moversScanner) {
+        this.moversScanner = moversScanner;
+    }
+
+    public void writeReport(HtmlWriter out, LocalDateTime now, MarketDataBatch marketData,
+                            List<NewsHeadline> headlines, HistoryStore history) throws IOException {
+        writeHead(out, now);
+        writeSummary(out, marketData, marketData.countPositiveChange(), marketData.indexOfTopMover(),
+                headlines.size());
+        writeMarketTableOpen(out);
+        for (int row = 0; row < marketData.size(); row++) {
+            writeMarketRow(out, marketData, row);
+        }
+        writeTail(out, marketData, headlines, history);
+    }
+
+    public void writeHead(HtmlWriter out, LocalDateTime now) throws IOException {
+        out.write(HEAD_OPEN).text(now.format(DATE_FORMAT))
+           .write(HEAD_CLOSE).text(now.format(TIMESTAMP_FORMAT))
+           .write(HEADER_CLOSE);
+    }
+
+    public void writeSummary(HtmlWriter out, MarketDataBatch marketData, int positiveCount, int topMoverRow,
+                             int headlineCount) throws IOException {
+        out.write(SUMMARY_SENTIMENT).text(analyzeMarketSentiment(positiveCount, marketData.size()))
+           .write(SUMMARY_TOP_MOVER);
+        if (topMoverRow < 0) {
+            out.text("N/A");
+        } else {
+            out.text(marketData.symbol[topMoverRow]).text(" (")
+               .signedFixed(marketData.changePercent[topMoverRow], 2).text("%)");
+        }
+        out.write(SUMMARY_HEADLINES).number(headlineCount).write(SUMMARY_CLOSE);
+    }
+
+    public void writeMarketTableOpen(HtmlWriter out) throws IOException {
+        out.write(MARKET_TABLE_OPEN);
+    }
+
+    public void writeMarketTableClose(HtmlWriter out) throws IOException {
+        out.write(TABLE_CLOSE);
+    }
+
+    public void writeFooter(HtmlWriter out) throws IOException {
+        out.write(FOOTER);
+    }
+
+    public void writeMarketRow(HtmlWriter out, MarketDataBatch batch, int row) throws IOException {
+        boolean positive = batch.change[row] >= 0;
+        String name = batch.name[row];
+
+        out.write(ROW_SYMBOL).text(batch.symbol[row]).write(ROW_NAME);
+        if (name.length() > NAME_MAX_LENGTH) {
+            out.text(name, 0, NAME_MAX_LENGTH).write(ELLIPSIS);
+        } else {
+            out.text(name);
+        }
+        out.write(ROW_PREVIOUS_CLOSE).fixed(batch.previousClose[row], 2)
+           .write(ROW_CURRENT_PRICE).fixed(batch.currentPrice[row], 2)
+           .write(positive ? ROW_CHANGE_POSITIVE : ROW_CHANGE_NEGATIVE).fixed(batch.change[row], 2)
+           .write(positive ? ROW_PERCENT_POSITIVE : ROW_PERCENT_NEGATIVE).fixed(batch.changePercent[row], 2)
+           .write(ROW_VOLUME);
+        writeVolume(out, batch.volume[row]);
+        out.write(ROW_CLOSE);
+    }
+
+    // Everything after the pre-market rows: table close, movers, trends, headlines and footer
+    public void writeTail(HtmlWriter out, MarketDataBatch marketData, List<NewsHeadline> headlines,
+                          HistoryStore history) throws IOException {
+        writeMarketTableClose(out);
+        writeMoversSection(out, marketData, history);
+        writeTrailer(out, marketData, headlines, history);
+    }
+
+    // Everything after the movers. Unlike the movers it doesn't change with intraday quotes.
+    public void writeTrailer(HtmlWriter out, MarketDataBatch marketData, List<NewsHeadline> headlines,
+                             HistoryStore history) throws IOException {
+        writeTrendSection(out, marketData, history);
+        writeNewsSection(out, headlines);
+        writeFooter(out);
+    }
+
+    public void writeTrendSection(HtmlWriter out, MarketDataBatch marketData, HistoryStore history)
+            throws IOException {
+        if (history == null) return;
+
+        HistoryStore.Window window;
+        try {
+            window = history.window(50);
+        } catch (IOException e) {
+            logger.warn("Failed to read history", e);
+            return;
+        }
+        List<HistoryStore.Series> seriesByRow = new ArrayList<>(marketData.size());
+        boolean any = false;
+        for (int i = 0; i < marketData.size(); i++) {
+            HistoryStore.Series series = window.series(marketData.symbol[i]);
+            if (series != null && series.size() <= 5) series = null;
+            seriesByRow.add(series);
+            any |= series != null;
+        }
+        if (!any) return;
+
+        out.write(TREND_TABLE_OPEN);
+        for (int i = 0; i < marketData.size(); i++) {
+            HistoryStore.Series series = seriesByRow.get(i);
+            if (series == null) continue;
+
+            out.write(ROW_SYMBOL).text(marketData.symbol[i]).write(TREND_SYMBOL_CLOSE);
+            writeTrendCell(out, series.changePercent(5));
+            writeTrendCell(out, series.changePercent(20));
+            writeTrendCell(out, series.changePercent(50));
+            double ratio = series.volumeRatio(20);
+            out.write(TREND_VOLUME_OPEN);
+            if (Double.isNaN(ratio)) {
+                out.write(TREND_VOLUME_EMPTY).write(TREND_ROW_CLOSE_EMPTY);
+            } else {
+                out.fixed(ratio, 2).write(TREND_ROW_CLOSE);
+            }
+        }
+        out.write(TABLE_CLOSE);
+    }
+
+    // Short HTML body for emails whose full report goes out as an attachment: the summary,
+    // the biggest movers of the watchlist and the top headlines
+    public void writeEmailSummary(HtmlWriter out, LocalDateTime now, MarketDataBatch marketData,
+                                  List<NewsHeadline> headlines, int maxRows, String attachmentName)
+            throws IOException {
+        String date = now.format(DATE_FORMAT);
+        out.write(EMAIL_HEAD).text(date).write(EMAIL_TITLE).text(date)
+           .write(EMAIL_SENTIMENT).text(analyzeMarketSentiment(marketData.countPositiveChange(), marketData.size()))
+           .write(EMAIL_TOP_MOVER);
+        int topMover = marketData.indexOfTopMover();
+        if (topMover < 0) {
+            out.text("N/A");
+        } else {
+            out.text(marketData.symbol[topMover]).text(" (")
+               .signedFixed(marketData.changePercent[topMover], 2).text("%)");
+        }
+        out.write(EMAIL_SYMBOLS).number(marketData.size()).write(EMAIL_TABLE_OPEN);
+
+        TopKHeap<Integer> movers = new TopKHeap<>(Math.max(1, maxRows),
+                Comparator.comparingDouble(row -> Math.abs(marketData.changePercent[row])));
+        for (int row = 0; row < marketData.size(); row++) {
+            movers.offer(row);
+        }
+        for (int row : movers.toSortedList()) {
+            double changePercent = marketData.changePercent[row];
+            out.write(EMAIL_ROW_SYMBOL).text(marketData.symbol[row])
+               .write(EMAIL_ROW_PRICE).fixed(marketData.currentPrice[row], 2)
+               .write(changePercent >= 0 ? EMAIL_ROW_POSITIVE : EMAIL_ROW_NEGATIVE).signedFixed(changePercent, 2)
+               .write(EMAIL_ROW_CLOSE);
+        }
+
+        out.write(EMAIL_NEWS_OPEN);
+        for (int i = 0; i < Math.min(5, headlines.size()); i++) {
+            NewsHeadline headline = headlines.get(i);
+            out.write(EMAIL_NEWS_ITEM).text(headline.url).write(EMAIL_NEWS_TITLE).text(headline.title)
+               .write(EMAIL_NEWS_SOURCE).text(headline.source).write(EMAIL_NEWS_CLOSE);
+        }
+        out.write(EMAIL_ATTACHMENT).text(attachmentName).write(EMAIL_CLOSE);
+    }
+
+    // Movers rank the whole batch; without history only the unusual volume list is missing
+    public void writeMoversSection(HtmlWriter out, MarketDataBatch batch, HistoryStore history)
+            throws IOException {
+        double[] volumeRatio = volumeRatios(batch, history);
+        MoversScanner.Movers movers = moversScanner.scan(batch, volumeRatio);
+        if (movers.isEmpty()) return;
+
+        // Yahoo's chart endpoint carries no pre-market prices, so live reports only have volume to rank
+        boolean preMarket = hasPreMarketData(batch);
+        out.write(preMarket ? MOVERS_OPEN : VOLUME_MOVERS_OPEN);
+        if (preMarket) {
+            writeMoversList(out, "Top Gainers", batch, movers.gainers, volumeRatio);
+            writeMoversList(out, "Top Losers", batch, movers.losers, volumeRatio);
+            writeMoversList(out, "Gap-Ups", batch, movers.gapUps, volumeRatio);
+        }
+        writeMoversList(out, "Unusual Volume", batch, movers.unusualVolume, volumeRatio);
+        out.write(SECTION_CLOSE);
+    }
+
+    private static boolean hasPreMarketData(MarketDataBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.preMarketPrice[i] > 0) return true;
+        }
+        return false;
+    }
+
+    public void writeNewsSection(HtmlWriter out, List<NewsHeadline> headlines) throws IOException {
+        out.write(NEWS_OPEN);
+        for (NewsHeadline headline : headlines) {
+            out.write(headline.relevanceScore >= HOT_RELEVANCE_SCORE ? NEWS_ITEM_HOT : NEWS_ITEM).text(headline.title)
+               .write(NEWS_DESCRIPTION).text(headline.description)
+               .write(NEWS_SOURCE).text(headline.source)
+               .write(NEWS_PUBLISHED).text(formatPublishTime(headline.publishedAt))
+               .write(NEWS_LINK).text(headline.url)
+               .write(NEWS_ITEM_CLOSE);
+        }
+        out.write(SECTION_CLOSE);
+    }
+
+    // Latest volume against the average of up to 20 prior sessions; NaN with fewer than 5 on record
+    private static double[] volumeRatios(MarketDataBatch batch, HistoryStore history) {
+        double[] ratios = new double[batch.size()];
+        Arrays.fill(ratios, Double.NaN);
+        if (history == null) return ratios;
+        HistoryStore.Window window;
+        try {
+            window = history.window(VOLUME_RATIO_DAYS);
+        } catch (IOException e) {
+            logger.warn("Failed to read history", e);
+            return ratios;
+        }
+        for (int row = 0; row < batch.size(); row++) {
+            HistoryStore.Series series = window.series(batch.symbol[row]);
+            int bars = series == null ? 0 : Math.min(VOLUME_RATIO_DAYS, series.size() - 1);
+            if (bars >= 5) {
+                ratios[row] = series.volumeRatio(bars);
+            }
+        }
+        return ratios;
+    }
+
+    public static String analyzeMarketSentiment(int positiveCount, int total) {
+        if (total == 0) return "Neutral";
+
+        double positiveRatio = (double) positiveCount / total;
+
+        if (positiveRatio > 0.6) return "Positive";
+        else if (positiveRatio < 0.4) return "Negative";
+        else return "Mixed";
+    }
+
+    private void writeMoversList(HtmlWriter out, String title, MarketDataBatch batch, int[] rows,
+                                 double[] volumeRatio) throws IOException {
+        if (rows.length == 0) return;
+
+        out.write(MOVERS_LIST_OPEN).text(title).write(MOVERS_TABLE_OPEN);
+        for (int row : rows) {
+            boolean hasPreMarket = batch.preMarketPrice[row] > 0;
+            double move = batch.preMarketChangePercent[row];
+            String name = batch.name[row] == null ? "" : batch.name[row];
+
+            out.write(ROW_SYMBOL).text(batch.symbol[row]).write(ROW_NAME);
+            if (name.length() > NAME_MAX_LENGTH) {
+                out.text(name, 0, NAME_MAX_LENGTH).write(ELLIPSIS);
+            } else {
+                out.text(name);
+            }
+            if (hasPreMarket) {
+                out.write(MOVERS_PRICE).fixed(batch.preMarketPrice[row], 2)
+                   .write(move >= 0 ? ROW_PERCENT_POSITIVE : ROW_PERCENT_NEGATIVE).fixed(move, 2)
+                   .write(ROW_VOLUME);
+            } else {
+                // Unusual volume can list symbols that haven't traded pre-market
+                out.write(MOVERS_CELL_EMPTY).write(MOVERS_CELL_EMPTY).write(MOVERS_RATIO);
+            }
+            writeVolume(out, batch.volume[row]);
+            out.write(MOVERS_RATIO);
+            double ratio = volumeRatio == null ? Double.NaN : volumeRatio[row];
+            if (Double.isNaN(ratio)) {
+                out.write(TREND_VOLUME_EMPTY).write(TREND_ROW_CLOSE_EMPTY);
+            } else {
+                out.fixed(ratio, 2).write(TREND_ROW_CLOSE);
+            }
+        }
+        out.write(MOVERS_TABLE_CLOSE);
+    }
+
+    private void writeTrendCell(HtmlWriter out, double changePercent) throws IOException {
+        if (Double.isNaN(changePercent)) {
+            out.write(TREND_CELL_EMPTY);
+            return;
+        }
+        out.write(changePercent >= 0 ? TREND_CELL_POSITIVE : TREND_CELL_NEGATIVE)
+           .signedFixed(changePercent, 2).write(TREND_CELL_CLOSE);
+    }
+
+    private void writeVolume(HtmlWriter out, long volume) throws IOException {
+        if (volume >= 1_000_000_000) {
+            out.fixed(volume / 1_000_000_000.0, 1).ascii('B');
+        } else if (volume >= 1_000_000) {
+            out.fixed(volume / 1_000_000.0, 1).ascii('M');
+        } else if (volume >= 1_000) {
+            out.fixed(volume / 1_000.0, 1).ascii('K');
+        } else {
+            out.number(volume);
+        }
+    }
+
+    private String formatPublishTime(String publishedAt) {
+        try {
+            // Parse ISO date and format to readable time
+            LocalDateTime dateTime = LocalDateTime.parse(publishedAt.replace("Z", ""));
+            return dateTime.format(TIME_FORMAT);
+        } catch (Exception e) {
+            return publishedAt;
+        }
+    }
+}
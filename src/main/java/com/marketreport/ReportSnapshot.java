@@ -0,0 +1,306 @@
+package com.marketreport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Compact binary archive of one run's quotes and headlines, little-endian:
+//   header   magic "MRSN", u16 version, u16 flags, i64 created (epoch ms),
+//            i32 market rows, i32 headline rows, i32 strings,
+//            i32 stored body bytes, i32 raw body bytes, i32 reserved
+//   body     market rows   (72 bytes: symbol and name ids, 7 doubles, volume)
+//            headline rows (24 bytes: five string ids and the score)
+//            string table  (i32 offsets[strings + 1], then the UTF-8 bytes)
+// Every string is stored once and referenced by id (-1 for null). With
+// FLAG_DEFLATE the body is deflated; otherwise rows sit at fixed offsets and
+// scan() reads them straight from a memory-mapped file.
+public class ReportSnapshot {
+    public static final String EXTENSION = ".snap";
+    public static final int FLAG_DEFLATE = 1;
+
+    private static final int MAGIC = 0x4E53524D;
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int MARKET_ROW_BYTES = 72;
+    private static final int HEADLINE_ROW_BYTES = 24;
+
+    public final long createdAtMillis;
+    public final List<MarketData> marketData;
+    public final List<NewsHeadline> headlines;
+
+    public ReportSnapshot(long createdAtMillis, List<MarketData> marketData, List<NewsHeadline> headlines) {
+        this.createdAtMillis = createdAtMillis;
+        this.marketData = marketData;
+        this.headlines = headlines;
+    }
+
+    // Called once per snapshot row that matches the scanned symbol
+    public interface QuoteVisitor {
+        void visit(long createdAtMillis, double currentPrice, double changePercent, long volume,
+                   double preMarketChangePercent);
+    }
+
+    public byte[] encode(boolean compress) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] marketIds = new int[marketData.size() * 2];
+        for (int i = 0; i < marketData.size(); i++) {
+            marketIds[i * 2] = intern(marketData.get(i).symbol, ids, strings);
+            marketIds[i * 2 + 1] = intern(marketData.get(i).name, ids, strings);
+        }
+        int[] headlineIds = new int[headlines.size() * 5];
+        for (int i = 0; i < headlines.size(); i++) {
+            NewsHeadline headline = headlines.get(i);
+            headlineIds[i * 5] = intern(headline.title, ids, strings);
+            headlineIds[i * 5 + 1] = intern(headline.description, ids, strings);
+            headlineIds[i * 5 + 2] = intern(headline.source, ids, strings);
+            headlineIds[i * 5 + 3] = intern(headline.publishedAt, ids, strings);
+            headlineIds[i * 5 + 4] = intern(headline.url, ids, strings);
+        }
+
+        int stringBytes = 0;
+        for (byte[] string : strings) {
+            stringBytes += string.length;
+        }
+        int rawLength = marketData.size() * MARKET_ROW_BYTES + headlines.size() * HEADLINE_ROW_BYTES
+                + (strings.size() + 1) * 4 + stringBytes;
+        ByteBuffer body = ByteBuffer.allocate(rawLength).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; i < marketData.size(); i++) {
+            MarketData data = marketData.get(i);
+            body.putInt(marketIds[i * 2]).putInt(marketIds[i * 2 + 1])
+                .putDouble(data.previousClose).putDouble(data.currentPrice)
+                .putDouble(data.change).putDouble(data.changePercent)
+                .putDouble(data.preMarketPrice).putDouble(data.preMarketChange)
+                .putDouble(data.preMarketChangePercent).putLong(data.volume);
+        }
+        for (int i = 0; i < headlines.size(); i++) {
+            for (int field = 0; field < 5; field++) {
+                body.putInt(headlineIds[i * 5 + field]);
+            }
+            body.putInt(headlines.get(i).relevanceScore);
+        }
+        int offset = 0;
+        body.putInt(offset);
+        for (byte[] string : strings) {
+            offset += string.length;
+            body.putInt(offset);
+        }
+        for (byte[] string : strings) {
+            body.put(string);
+        }
+
+        byte[] stored = compress ? deflate(body.array()) : body.array();
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + stored.length).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putShort(VERSION).putShort((short) (compress ? FLAG_DEFLATE : 0))
+           .putLong(createdAtMillis)
+           .putInt(marketData.size()).putInt(headlines.size()).putInt(strings.size())
+           .putInt(stored.length).putInt(rawLength).putInt(0)
+           .put(stored);
+        return out.array();
+    }
+
+    public static ReportSnapshot read(Path file) throws IOException {
+        ByteBuffer buffer = map(file);
+        Header header = Header.read(buffer, file);
+        ByteBuffer body = header.body(buffer);
+
+        String[] strings = new String[header.strings];
+        int tableStart = header.marketRows * MARKET_ROW_BYTES + header.headlineRows * HEADLINE_ROW_BYTES;
+        int bytesStart = tableStart + (header.strings + 1) * 4;
+        byte[] utf8 = new byte[0];
+        for (int id = 0; id < header.strings; id++) {
+            int start = body.getInt(tableStart + id * 4);
+            int length = body.getInt(tableStart + (id + 1) * 4) - start;
+            if (utf8.length < length) utf8 = new byte[length];
+            body.position(bytesStart + start);
+            body.get(utf8, 0, length);
+            strings[id] = new String(utf8, 0, length, StandardCharsets.UTF_8);
+        }
+
+        List<MarketData> marketData = new ArrayList<>(header.marketRows);
+        body.position(0);
+        for (int i = 0; i < header.marketRows; i++) {
+            String symbol = lookup(strings, body.getInt());
+            String name = lookup(strings, body.getInt());
+            double previousClose = body.getDouble();
+            double currentPrice = body.getDouble();
+            double change = body.getDouble();
+            double changePercent = body.getDouble();
+            double preMarketPrice = body.getDouble();
+            double preMarketChange = body.getDouble();
+            double preMarketChangePercent = body.getDouble();
+            long volume = body.getLong();
+            marketData.add(new MarketData(symbol, name, previousClose, currentPrice, change, changePercent,
+                    volume, preMarketPrice, preMarketChange, preMarketChangePercent));
+        }
+        List<NewsHeadline> headlines = new ArrayList<>(header.headlineRows);
+        for (int i = 0; i < header.headlineRows; i++) {
+            headlines.add(new NewsHeadline(lookup(strings, body.getInt()), lookup(strings, body.getInt()),
+                    lookup(strings, body.getInt()), lookup(strings, body.getInt()), lookup(strings, body.getInt()),
+                    body.getInt()));
+        }
+        return new ReportSnapshot(header.createdAtMillis, marketData, headlines);
+    }
+
+    // Reads one symbol's row without decoding the rest of the snapshot: the symbol is
+    // matched against the string table as raw bytes, then the rows are compared by id.
+    // Returns false if the snapshot doesn't contain the symbol.
+    public static boolean scan(Path file, String symbol, QuoteVisitor visitor) throws IOException {
+        return scan(file, symbol.getBytes(StandardCharsets.UTF_8), visitor);
+    }
+
+    public static boolean scan(Path file, byte[] symbol, QuoteVisitor visitor) throws IOException {
+        ByteBuffer buffer = map(file);
+        Header header = Header.read(buffer, file);
+        ByteBuffer body = header.body(buffer);
+
+        int tableStart = header.marketRows * MARKET_ROW_BYTES + header.headlineRows * HEADLINE_ROW_BYTES;
+        int bytesStart = tableStart + (header.strings + 1) * 4;
+        int symbolId = -1;
+        for (int id = 0; id < header.strings && symbolId < 0; id++) {
+            int start = body.getInt(tableStart + id * 4);
+            int end = body.getInt(tableStart + (id + 1) * 4);
+            if (end - start == symbol.length && bytesEqual(body, bytesStart + start, symbol)) {
+                symbolId = id;
+            }
+        }
+        if (symbolId < 0) return false;
+
+        for (int row = 0; row < header.marketRows; row++) {
+            int base = row * MARKET_ROW_BYTES;
+            if (body.getInt(base) == symbolId) {
+                visitor.visit(header.createdAtMillis, body.getDouble(base + 16), body.getDouble(base + 32),
+                        body.getLong(base + 64), body.getDouble(base + 56));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Header {
+        final int flags;
+        final long createdAtMillis;
+        final int marketRows;
+        final int headlineRows;
+        final int strings;
+        final int storedLength;
+        final int rawLength;
+
+        private Header(ByteBuffer buffer) {
+            this.flags = buffer.getShort(6);
+            this.createdAtMillis = buffer.getLong(8);
+            this.marketRows = buffer.getInt(16);
+            this.headlineRows = buffer.getInt(20);
+            this.strings = buffer.getInt(24);
+            this.storedLength = buffer.getInt(28);
+            this.rawLength = buffer.getInt(32);
+        }
+
+        static Header read(ByteBuffer buffer, Path file) throws IOException {
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a report snapshot: " + file);
+            }
+            short version = buffer.getShort(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+            Header header = new Header(buffer);
+            if (buffer.limit() < HEADER_BYTES + header.storedLength) {
+                throw new IOException("Truncated report snapshot: " + file);
+            }
+            return header;
+        }
+
+        // Uncompressed bodies are a view into the mapping; deflated ones are inflated onto the heap
+        ByteBuffer body(ByteBuffer buffer) throws IOException {
+            ByteBuffer stored = buffer.duplicate();
+            stored.position(HEADER_BYTES).limit(HEADER_BYTES + storedLength);
+            if ((flags & FLAG_DEFLATE) == 0) {
+                return stored.slice().order(ByteOrder.LITTLE_ENDIAN);
+            }
+            Inflater inflater = new Inflater();
+            try {
+                byte[] input = new byte[storedLength];
+                stored.get(input);
+                inflater.setInput(input);
+                byte[] raw = new byte[rawLength];
+                int length = 0;
+                while (length < rawLength && !inflater.finished()) {
+                    int inflated = inflater.inflate(raw, length, rawLength - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    length += inflated;
+                }
+                if (length != rawLength) {
+                    throw new IOException("Corrupt snapshot body: inflated " + length + " of " + rawLength + " bytes");
+                }
+                return ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt snapshot body", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<byte[]> strings) {
+        if (value == null) return -1;
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = strings.size();
+            ids.put(value, id);
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    private static String lookup(String[] strings, int id) {
+        return id < 0 ? null : strings[id];
+    }
+
+    private static boolean bytesEqual(ByteBuffer body, int position, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (body.get(position + i) != expected[i]) return false;
+        }
+        return true;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] out = new byte[Math.max(64, raw.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return Arrays.copyOf(out, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.marketreport;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Resilience policy for provider calls. Each logical call gets a total
+// deadline; within it, retryable failures (I/O errors, 408, 429, 5xx) are
+// retried with full-jitter exponential backoff, honouring Retry-After. An
+// attempt still running past the observed p95 latency for its kind of call is
+// hedged with a duplicate request and the first answer wins; the hedge needs a
+// spare host permit and rate token from the FetchEngine. A circuit breaker
+// per host fails fast while the provider is degraded. Whenever no fresh answer
+// is available, the last cached response is served instead, however stale.
+public class ResilientHttp {
+    private static final Logger logger = LoggerFactory.getLogger(ResilientHttp.class);
+    private static final long MIN_HEDGE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    public interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    // Non-2xx response; retryAfterNanos is -1 when the server gave no Retry-After
+    public static class HttpStatusException extends IOException {
+        public final int code;
+        public final long retryAfterNanos;
+
+        HttpStatusException(Request request, int code, long retryAfterNanos) {
+            super("HTTP " + code + " from " + request.url().host() + request.url().encodedPath());
+            this.code = code;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        public boolean isRetryable() {
+            return code == 408 || code == 429 || code >= 500;
+        }
+    }
+
+    private final OkHttpClient client;
+    private final FetchEngine fetchEngine;
+    private final RunMetrics metrics;
+    private final int maxRetries;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    private final long callDeadlineNanos;
+    private final double hedgePercentile;
+    private final int hedgeMinSamples;
+    private final int breakerWindow;
+    private final int breakerMinCalls;
+    private final double breakerFailureRatio;
+    private final int breakerCooldownSeconds;
+    private final ConcurrentHashMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    public ResilientHttp(OkHttpClient client, FetchEngine fetchEngine, RunMetrics metrics) {
+        this.client = client;
+        this.fetchEngine = fetchEngine;
+        this.metrics = metrics;
+        this.maxRetries = Math.max(0, EnvConfig.getInt("FETCH_MAX_RETRIES", 2));
+        this.baseBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, EnvConfig.getInt("FETCH_BACKOFF_MILLIS", 250)));
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, EnvConfig.getInt("FETCH_MAX_BACKOFF_MILLIS", 4000)));
+        this.callDeadlineNanos = TimeUnit.SECONDS.toNanos(Math.max(1, EnvConfig.getInt("FETCH_CALL_DEADLINE_SECONDS", 15)));
+        this.hedgePercentile = EnvConfig.getDouble("FETCH_HEDGE_PERCENTILE", 95.0);
+        this.hedgeMinSamples = EnvConfig.getInt("FETCH_HEDGE_MIN_SAMPLES", 20);
+        this.breakerWindow = EnvConfig.getInt("BREAKER_WINDOW", 20);
+        this.breakerMinCalls = EnvConfig.getInt("BREAKER_MIN_CALLS", 10);
+        this.breakerFailureRatio = EnvConfig.getDouble("BREAKER_FAILURE_RATIO", 0.5);
+        this.breakerCooldownSeconds = EnvConfig.getInt("BREAKER_COOLDOWN_SECONDS", 30);
+    }
+
+    // Runs the call under the policy; metricName groups calls for metrics and hedging thresholds.
+    // The handler only sees successful responses and may run on an OkHttp dispatcher thread.
+    public <T> T execute(String metricName, Request request, ResponseHandler<T> handler) throws IOException {
+        String host = request.url().host();
+        CircuitBreaker breaker = breakers.computeIfAbsent(host, h -> new CircuitBreaker(
+                h, breakerWindow, breakerMinCalls, breakerFailureRatio, breakerCooldownSeconds));
+        LatencyHistogram observed = latencies.computeIfAbsent(metricName, n -> new LatencyHistogram());
+        long deadline = System.nanoTime() + callDeadlineNanos;
+
+        try (RunMetrics.Timing timing = metrics.time(metricName)) {
+            IOException failure = null;
+            for (int attempt = 0; ; attempt++) {
+                if (!breaker.allowRequest()) {
+                    failure = new IOException("Circuit open for " + host);
+                    break;
+                }
+
+                long backoff;
+                try {
+                    T result = attempt(metricName, request, handler, observed, deadline);
+                    breaker.recordSuccess();
+                    timing.success();
+                    return result;
+                } catch (HttpStatusException e) {
+                    if (!e.isRetryable()) {
+                        // The provider answered; this request is simply bad
+                        breaker.recordSuccess();
+                        throw e;
+                    }
+                    breaker.recordFailure();
+                    failure = e;
+                    backoff = e.retryAfterNanos >= 0 ? e.retryAfterNanos : jitteredBackoff(attempt);
+                } catch (IOException e) {
+                    breaker.recordFailure();
+                    failure = e;
+                    // Socket timeouts are retried like any I/O error; only an interrupt or the deadline ends the call
+                    if (Thread.currentThread().isInterrupted() || System.nanoTime() - deadline >= 0) break;
+                    backoff = jitteredBackoff(attempt);
+                }
+
+                // Don't wait out a Retry-After or backoff that would overrun the deadline
+                if (attempt >= maxRetries || System.nanoTime() + backoff >= deadline) break;
+                metrics.addRetries(metricName, 1);
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted during retry backoff");
+                }
+            }
+
+            T cached = fromCache(request, handler);
+            if (cached != null) {
+                logger.warn("Serving cached {} after: {}", request.url().encodedPath(), failure.getMessage());
+                metrics.stage(metricName).fallbacks.incrementAndGet();
+                timing.success();
+                return cached;
+            }
+            throw failure;
+        }
+    }
+
+    // One attempt, plus at most one hedge, bounded by the deadline
+    private <T> T attempt(String metricName, Request request, ResponseHandler<T> handler,
+                          LatencyHistogram observed, long deadline) throws IOException {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        List<Call> calls = new CopyOnWriteArrayList<>();
+        AtomicInteger outstanding = new AtomicInteger();
+        try {
+            start(request, handler, observed, result, calls, outstanding, () -> { });
+
+            long hedgeDelay = hedgeDelayNanos(observed);
+            if (hedgeDelay > 0 && System.nanoTime() + hedgeDelay < deadline) {
+                try {
+                    return result.get(hedgeDelay, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // Without a spare permit and token the hedge is skipped and the first request kept
+                    String host = request.url().host();
+                    if (fetchEngine.tryAcquire(host)) {
+                        metrics.stage(metricName).hedges.incrementAndGet();
+                        start(request, handler, observed, result, calls, outstanding, () -> fetchEngine.release(host));
+                    }
+                }
+            }
+            return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new InterruptedIOException("Deadline exceeded for " + request.url().host() + request.url().encodedPath());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + request.url().host());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        } finally {
+            // Abandon the losing or late requests
+            for (Call call : calls) {
+                call.cancel();
+            }
+        }
+    }
+
+    // onDone runs once the request has finished, failed or been cancelled
+    private <T> void start(Request request, ResponseHandler<T> handler, LatencyHistogram observed,
+                           CompletableFuture<T> result, List<Call> calls, AtomicInteger outstanding,
+                           Runnable onDone) {
+        long startNanos = System.nanoTime();
+        Call call = client.newCall(request);
+        calls.add(call);
+        outstanding.incrementAndGet();
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response body = response) {
+                    if (!body.isSuccessful()) {
+                        throw new HttpStatusException(request, body.code(), retryAfterNanos(body));
+                    }
+                    T value = handler.handle(body);
+                    observed.record(System.nanoTime() - startNanos);
+                    result.complete(value);
+                } catch (IOException | RuntimeException e) {
+                    fail(e);
+                } finally {
+                    onDone.run();
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                try {
+                    fail(e);
+                } finally {
+                    onDone.run();
+                }
+            }
+
+            // A hedged attempt only fails once every request in it has failed
+            private void fail(Exception e) {
+                if (outstanding.decrementAndGet() == 0) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    // Zero disables hedging until enough successful calls have been observed
+    private long hedgeDelayNanos(LatencyHistogram observed) {
+        if (hedgePercentile <= 0 || hedgePercentile >= 100 || observed.count() < hedgeMinSamples) {
+            return 0;
+        }
+        return Math.max(MIN_HEDGE_DELAY_NANOS, observed.percentile(hedgePercentile));
+    }
+
+    // Full jitter: uniform in [0, min(max, base * 2^attempt)]
+    private long jitteredBackoff(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, baseBackoffNanos << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    // Retry-After is either delta-seconds or an HTTP date
+    private static long retryAfterNanos(Response response) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter == null) return -1;
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toNanos());
+            } catch (DateTimeParseException | ArithmeticException ignored) {
+                return -1;
+            }
+        }
+    }
+
+    private <T> T fromCache(Request request, ResponseHandler<T> handler) {
+        if (client.cache() == null) return null;
+
+        Request cachedOnly = request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build();
+        try (Response response = client.newCall(cachedOnly).execute()) {
+            // FORCE_CACHE answers 504 when nothing is cached
+            return response.isSuccessful() ? handler.handle(response) : null;
+        } catch (IOException | RuntimeException e) {
+            logger.debug("No usable cached copy of {}", request.url().encodedPath(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.marketreport;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streaming parsers for provider responses. Only the fields the report needs
+// are read; everything else (timestamps, indicator arrays, article content)
+// is skipped token by token without being materialised.
+public final class ResponseParsers {
+
+    public interface ArticleHandler {
+        void article(String title, String description, String source, String publishedAt, String url);
+    }
+
+    private ResponseParsers() {
+    }
+
+    // Yahoo v8 chart: {"chart":{"result":[{"meta":{...},"timestamp":[...],"indicators":{...}}]}}
+    public static MarketData parseYahooChart(JsonReader reader, String symbol) throws IOException {
+        MarketData data = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("chart") || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("result") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                if (reader.hasNext()) {
+                    data = parseChartResult(reader, symbol);
+                }
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return data;
+    }
+
+    private static MarketData parseChartResult(JsonReader reader, String symbol) throws IOException {
+        MarketData data = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("meta") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                data = parseQuoteFields(reader, symbol);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return data;
+    }
+
+    // Reads the chart meta object; returns null when a required price is missing
+    private static MarketData parseQuoteFields(JsonReader reader, String symbol) throws IOException {
+        String name = null;
+        double currentPrice = Double.NaN;
+        double previousClose = Double.NaN;
+        long volume = 0L;
+        double preMarketPrice = 0.0;
+        double preMarketChange = 0.0;
+        double preMarketChangePercent = 0.0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (field) {
+                case "symbol":
+                    if (symbol == null) symbol = reader.nextString();
+                    else reader.skipValue();
+                    break;
+                case "longName":
+                    name = reader.nextString();
+                    break;
+                case "regularMarketPrice":
+                    currentPrice = reader.nextDouble();
+                    break;
+                case "regularMarketVolume":
+                    volume = reader.nextLong();
+                    break;
+                case "preMarketPrice":
+                    preMarketPrice = reader.nextDouble();
+                    break;
+                case "preMarketChange":
+                    preMarketChange = reader.nextDouble();
+                    break;
+                case "preMarketChangePercent":
+                    preMarketChangePercent = reader.nextDouble();
+                    break;
+                case "previousClose":
+                    previousClose = reader.nextDouble();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (symbol == null || Double.isNaN(currentPrice) || Double.isNaN(previousClose)) {
+            return null;
+        }
+
+        double change = currentPrice - previousClose;
+        double changePercent = (change / previousClose) * 100;
+        return new MarketData(
+            symbol, name != null ? name : symbol, previousClose, currentPrice, change, changePercent,
+            volume, preMarketPrice, preMarketChange, preMarketChangePercent
+        );
+    }
+
+    // NewsAPI: {"status":"ok","totalResults":n,"articles":[{"source":{"name":...},"title":...}]}
+    public static int parseNewsArticles(JsonReader reader, ArticleHandler handler) throws IOException {
+        int count = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("articles") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                parseArticle(reader, handler);
+                count++;
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        return count;
+    }
+
+    private static void parseArticle(JsonReader reader, ArticleHandler handler) throws IOException {
+        String title = "";
+        String description = "";
+        String source = "";
+        String publishedAt = "";
+        String url = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (field) {
+                case "title":
+                    title = reader.nextString();
+                    break;
+                case "description":
+                    description = reader.nextString();
+                    break;
+                case "publishedAt":
+                    publishedAt = reader.nextString();
+                    break;
+                case "url":
+                    url = reader.nextString();
+                    break;
+                case "source":
+                    source = parseSourceName(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        handler.article(title, description, source, publishedAt, url);
+    }
+
+    private static String parseSourceName(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return "";
+        }
+        String name = "";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("name") && reader.peek() == JsonToken.STRING) {
+                name = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return name;
+    }
+}
@@ -0,0 +1,290 @@
+package com.marketreport;
+
+import com.google.gson.stream.JsonWriter;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-run instrumentation of the hot paths. Each named stage keeps a latency
+// histogram plus failure, retry, hedge, byte, connection and allocation
+// counters; everything is lock-free so it can be recorded from fetch and
+// delivery threads. Exported as a JSON or Prometheus text summary next to
+// the report.
+public class RunMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(RunMetrics.class);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final ConcurrentHashMap<String, Stage> stages = new ConcurrentHashMap<>();
+    private final com.sun.management.ThreadMXBean allocationBean = allocationBean();
+
+    public static final class Stage {
+        public final LatencyHistogram latencyNanos = new LatencyHistogram();
+        public final AtomicLong failures = new AtomicLong();
+        public final AtomicLong retries = new AtomicLong();
+        public final AtomicLong timeouts = new AtomicLong();
+        public final AtomicLong hedges = new AtomicLong();
+        public final AtomicLong fallbacks = new AtomicLong();
+        public final AtomicLong bytes = new AtomicLong();
+        public final AtomicLong connections = new AtomicLong();
+        public final AtomicLong connectionReuses = new AtomicLong();
+        public final AtomicLong allocatedBytes = new AtomicLong();
+        // Timed calls whose allocation the JVM couldn't measure, such as those on virtual threads
+        public final AtomicLong unmeasuredAllocations = new AtomicLong();
+
+        // Bytes allocated by the stage's timed calls, or -1 when any of them couldn't be measured
+        public long measuredAllocatedBytes() {
+            return latencyNanos.count() > 0 && unmeasuredAllocations.get() == 0 ? allocatedBytes.get() : -1;
+        }
+    }
+
+    // Times one call on the current thread; the call counts as failed unless success() is reached
+    public final class Timing implements AutoCloseable {
+        private final Stage stage;
+        private final long startNanos;
+        private final long startAllocated;
+        private boolean succeeded;
+
+        private Timing(Stage stage) {
+            this.stage = stage;
+            this.startAllocated = allocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        public void success() {
+            succeeded = true;
+        }
+
+        @Override
+        public void close() {
+            stage.latencyNanos.record(System.nanoTime() - startNanos);
+            long endAllocated = startAllocated >= 0 ? allocatedBytes() : -1;
+            if (endAllocated >= 0) {
+                stage.allocatedBytes.addAndGet(Math.max(0, endAllocated - startAllocated));
+            } else {
+                stage.unmeasuredAllocations.incrementAndGet();
+            }
+            if (!succeeded) {
+                stage.failures.incrementAndGet();
+            }
+        }
+    }
+
+    public Stage stage(String name) {
+        return stages.computeIfAbsent(name, n -> new Stage());
+    }
+
+    public Timing time(String stage) {
+        return new Timing(stage(stage));
+    }
+
+    public void addBytes(String stage, long bytes) {
+        stage(stage).bytes.addAndGet(bytes);
+    }
+
+    public void addRetries(String stage, long retries) {
+        stage(stage).retries.addAndGet(retries);
+    }
+
+    public void addFailure(String stage) {
+        stage(stage).failures.incrementAndGet();
+    }
+
+    // Counts response body bytes as received (still compressed), new connections and
+    // pooled connections reused per host; cache hits add nothing
+    public EventListener.Factory httpListener() {
+        return call -> new EventListener() {
+            // One listener per call: a call that connected didn't reuse a pooled connection
+            private boolean connected;
+
+            @Override
+            public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+                connected = true;
+                stage("http." + call.request().url().host()).connections.incrementAndGet();
+            }
+
+            @Override
+            public void connectionAcquired(Call call, Connection connection) {
+                if (!connected) {
+                    stage("http." + call.request().url().host()).connectionReuses.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void responseBodyEnd(Call call, long byteCount) {
+                addBytes("http." + call.request().url().host(), byteCount);
+            }
+
+            @Override
+            public void callFailed(Call call, IOException ioe) {
+                addFailure("http." + call.request().url().host());
+            }
+        };
+    }
+
+    // METRICS_FORMAT selects json (default), prometheus or none
+    public void export(Path reportFile) {
+        String format = EnvConfig.getString("METRICS_FORMAT", "json").toLowerCase(Locale.ROOT);
+        if (format.equals("none")) return;
+
+        String name = reportFile.getFileName().toString().replaceFirst("\\.html$", "");
+        boolean prometheus = format.equals("prometheus");
+        Path target = reportFile.resolveSibling(name + (prometheus ? ".metrics.prom" : ".metrics.json"));
+        try (Writer out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            if (prometheus) {
+                writePrometheus(out);
+            } else {
+                writeJson(out);
+            }
+            logger.info("Run metrics written to {}", target);
+        } catch (IOException e) {
+            logger.warn("Failed to write run metrics to " + target, e);
+        }
+    }
+
+    public void writeJson(Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.setIndent("  ");
+        json.beginObject();
+        for (Map.Entry<String, Stage> entry : sortedStages().entrySet()) {
+            Stage stage = entry.getValue();
+            LatencyHistogram latency = stage.latencyNanos;
+            json.name(entry.getKey()).beginObject();
+            json.name("count").value(latency.count());
+            json.name("failures").value(stage.failures.get());
+            json.name("retries").value(stage.retries.get());
+            json.name("timeouts").value(stage.timeouts.get());
+            json.name("hedges").value(stage.hedges.get());
+            json.name("fallbacks").value(stage.fallbacks.get());
+            json.name("bytes").value(stage.bytes.get());
+            json.name("connections").value(stage.connections.get());
+            json.name("connectionReuses").value(stage.connectionReuses.get());
+            // null rather than a misleading 0 when allocation wasn't measured
+            long allocated = stage.measuredAllocatedBytes();
+            if (allocated >= 0) {
+                json.name("allocatedBytes").value(allocated);
+            } else {
+                json.name("allocatedBytes").nullValue();
+            }
+            if (latency.count() > 0) {
+                json.name("latencyMs").beginObject();
+                json.name("mean").value(millis(latency.mean()));
+                for (double percentile : PERCENTILES) {
+                    json.name("p" + formatPercentile(percentile)).value(millis(latency.percentile(percentile)));
+                }
+                json.name("max").value(millis(latency.max()));
+                json.endObject();
+            }
+            json.endObject();
+        }
+        json.endObject();
+        json.flush();
+    }
+
+    public void writePrometheus(Writer out) throws IOException {
+        Map<String, Stage> sorted = sortedStages();
+        out.write("# TYPE marketreport_stage_latency_seconds summary\n");
+        for (Map.Entry<String, Stage> entry : sorted.entrySet()) {
+            LatencyHistogram latency = entry.getValue().latencyNanos;
+            if (latency.count() == 0) continue;
+            String label = "stage=\"" + entry.getKey() + "\"";
+            for (double percentile : PERCENTILES) {
+                out.write("marketreport_stage_latency_seconds{" + label + ",quantile=\""
+                        + BigDecimal.valueOf(percentile).movePointLeft(2).stripTrailingZeros().toPlainString()
+                        + "\"} " + seconds(latency.percentile(percentile)) + "\n");
+            }
+            out.write("marketreport_stage_latency_seconds_sum{" + label + "} " + seconds(latency.sum()) + "\n");
+            out.write("marketreport_stage_latency_seconds_count{" + label + "} " + latency.count() + "\n");
+        }
+        writeCounter(out, sorted, "marketreport_stage_failures_total", stage -> stage.failures.get());
+        writeCounter(out, sorted, "marketreport_stage_retries_total", stage -> stage.retries.get());
+        writeCounter(out, sorted, "marketreport_stage_timeouts_total", stage -> stage.timeouts.get());
+        writeCounter(out, sorted, "marketreport_stage_hedges_total", stage -> stage.hedges.get());
+        writeCounter(out, sorted, "marketreport_stage_fallbacks_total", stage -> stage.fallbacks.get());
+        writeCounter(out, sorted, "marketreport_stage_bytes_total", stage -> stage.bytes.get());
+        writeCounter(out, sorted, "marketreport_stage_connections_total", stage -> stage.connections.get());
+        writeCounter(out, sorted, "marketreport_stage_connection_reuses_total",
+                stage -> stage.connectionReuses.get());
+        writeCounter(out, sorted, "marketreport_stage_allocated_bytes_total", Stage::measuredAllocatedBytes);
+        out.flush();
+    }
+
+    // A negative value leaves the stage out of the metric
+    private interface CounterValue {
+        long of(Stage stage);
+    }
+
+    private static void writeCounter(Writer out, Map<String, Stage> stages, String metric, CounterValue value)
+            throws IOException {
+        out.write("# TYPE " + metric + " counter\n");
+        for (Map.Entry<String, Stage> entry : stages.entrySet()) {
+            long count = value.of(entry.getValue());
+            if (count < 0) continue;
+            out.write(metric + "{stage=\"" + entry.getKey() + "\"} " + count + "\n");
+        }
+    }
+
+    private Map<String, Stage> sortedStages() {
+        return new TreeMap<>(stages);
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile)
+                ? String.valueOf((long) percentile)
+                : String.valueOf(percentile).replace('.', '_');
+    }
+
+    // Bytes allocated so far by the current thread, or -1 if the JVM can't tell
+    private long allocatedBytes() {
+        return allocationBean != null ? allocationBean.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    // getCurrentThreadAllocatedBytes arrived in JDK 14; on older runtimes allocation isn't measured
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+            if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()
+                    && hasCurrentThreadAllocatedBytes()) {
+                return allocation;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasCurrentThreadAllocatedBytes() {
+        try {
+            com.sun.management.ThreadMXBean.class.getMethod("getCurrentThreadAllocatedBytes");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.marketreport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+// Keeps up to maxConnections connected SMTP transports so consecutive sends
+// reuse one authenticated STARTTLS session instead of reconnecting each time.
+public class SmtpTransportPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private final Session session;
+    private final Semaphore permits;
+    private final Deque<Transport> idle = new ArrayDeque<>();
+    private final List<Transport> all = new ArrayList<>();
+    private int connectionsOpened;
+
+    public SmtpTransportPool(Session session, int maxConnections) {
+        this.session = session;
+        this.permits = new Semaphore(Math.max(1, maxConnections));
+    }
+
+    public Transport borrow() throws MessagingException, InterruptedException {
+        permits.acquire();
+        try {
+            Transport transport;
+            synchronized (this) {
+                transport = idle.pollFirst();
+            }
+            if (transport != null && transport.isConnected()) {
+                return transport;
+            }
+            if (transport == null) {
+                transport = session.getTransport("smtp");
+                synchronized (this) {
+                    all.add(transport);
+                }
+            }
+            transport.connect();
+            synchronized (this) {
+                connectionsOpened++;
+            }
+            return transport;
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void release(Transport transport) {
+        synchronized (this) {
+            idle.addFirst(transport);
+        }
+        permits.release();
+    }
+
+    // Returns a transport whose connection failed; it is closed and reconnected on next borrow
+    public void invalidate(Transport transport) {
+        closeQuietly(transport);
+        release(transport);
+    }
+
+    public synchronized int connectionsOpened() {
+        return connectionsOpened;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Transport transport : all) {
+            closeQuietly(transport);
+        }
+        idle.clear();
+        all.clear();
+    }
+
+    private static void closeQuietly(Transport transport) {
+        try {
+            if (transport.isConnected()) {
+                transport.close();
+            }
+        } catch (MessagingException e) {
+            logger.debug("Error closing SMTP transport", e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.marketreport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Works with archived report snapshots. Usage:
+//   java -cp target/morning-market-report-1.0.0.jar com.marketreport.SnapshotTool render <file.snap> [out.html]
+//   java -cp target/morning-market-report-1.0.0.jar com.marketreport.SnapshotTool scan <dir> <SYMBOL>
+// render rebuilds the report (without the trends section and the unusual volume
+// movers, which depend on the history at send time) and writes it to the file
+// or stdout. scan prints one CSV line per snapshot containing the symbol,
+// oldest first.
+public class SnapshotTool {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotTool.class);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && args[0].equals("render")) {
+            render(Paths.get(args[1]), args.length > 2 ? Paths.get(args[2]) : null);
+        } else if (args.length >= 3 && args[0].equals("scan")) {
+            scan(Paths.get(args[1]), args[2]);
+        } else {
+            System.err.println("Usage: SnapshotTool render <file.snap> [out.html] | scan <dir> <SYMBOL>");
+            System.exit(2);
+        }
+    }
+
+    public static void render(ReportSnapshot snapshot, OutputStream target) throws IOException {
+        HtmlWriter out = new HtmlWriter(target);
+        new ReportRenderer().writeReport(out,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(snapshot.createdAtMillis), MorningReportGenerator.MARKET_ZONE),
+                MarketDataBatch.of(snapshot.marketData), snapshot.headlines, null);
+        out.flush();
+    }
+
+    private static void render(Path file, Path output) throws IOException {
+        ReportSnapshot snapshot = ReportSnapshot.read(file);
+        if (output == null) {
+            render(snapshot, System.out);
+            return;
+        }
+        try (OutputStream out = Files.newOutputStream(output)) {
+            render(snapshot, out);
+        }
+        logger.info("Rendered {} to {}", file, output);
+    }
+
+    private static void scan(Path directory, String symbol) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(ReportSnapshot.EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        byte[] key = symbol.getBytes(StandardCharsets.UTF_8);
+        StringBuilder csv = new StringBuilder("timestamp,price,change_percent,volume,pre_market_change_percent\n");
+        long startNanos = System.nanoTime();
+        long bytes = 0;
+        int matches = 0;
+        for (Path file : files) {
+            bytes += Files.size(file);
+            try {
+                if (ReportSnapshot.scan(file, key, (createdAt, price, changePercent, volume, preMarketChangePercent) ->
+                        csv.append(Instant.ofEpochMilli(createdAt)).append(',').append(price).append(',')
+                           .append(changePercent).append(',').append(volume).append(',')
+                           .append(preMarketChangePercent).append('\n'))) {
+                    matches++;
+                }
+            } catch (IOException e) {
+                logger.warn("Skipping unreadable snapshot " + file, e);
+            }
+        }
+        long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+
+        System.out.print(csv);
+        logger.info("Scanned {} snapshots ({} KB) in {} ms, {} contain {}", files.size(), bytes / 1024,
+                elapsedMicros / 1000.0, matches, symbol);
+    }
+}
@@ -0,0 +1,125 @@
+package com.marketreport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// Small DAG scheduler over CompletableFuture. A stage starts as soon as all of
+// its inputs have completed and runs on a shared daemon pool; its timeout only
+// covers its own run, not the wait for inputs. A failed input fails every
+// stage downstream of it unless that stage was given a fallback. A stage that
+// times out is interrupted, which cancels any fetches it has in flight.
+public class StageRunner implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StageRunner.class);
+
+    public interface Stage<T> {
+        T run() throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final RunMetrics metrics;
+
+    public StageRunner(RunMetrics metrics) {
+        this.metrics = metrics;
+        this.executor = TaskThreads.newExecutor("stage", 0);
+    }
+
+    // Runs body once every input has completed successfully; timeoutSeconds <= 0 means no limit.
+    // Inputs are complete when body runs, so it can read them with join() without blocking.
+    public <T> CompletableFuture<T> stage(String name, long timeoutSeconds, Stage<T> body,
+                                          CompletableFuture<?>... inputs) {
+        return CompletableFuture.allOf(inputs).thenCompose(ignored -> run(name, timeoutSeconds, body));
+    }
+
+    // Degrades a stage: on failure or timeout the run continues with the fallback value
+    public static <T> CompletableFuture<T> withFallback(String name, CompletableFuture<T> stage, Supplier<T> fallback) {
+        return stage.exceptionally(e -> {
+            Throwable cause = unwrap(e);
+            if (cause instanceof TimeoutException) {
+                logger.warn("Stage '{}' timed out, continuing with degraded output", name);
+            } else {
+                logger.warn("Stage '" + name + "' failed, continuing with degraded output", cause);
+            }
+            return fallback.get();
+        });
+    }
+
+    // Waits for a stage and rethrows its original failure rather than a CompletionException
+    public static <T> T await(CompletableFuture<T> stage) throws Exception {
+        try {
+            return stage.get();
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<T> run(String name, long timeoutSeconds, Stage<T> body) {
+        // The thread running the body while it runs, so a timeout can interrupt it
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        CompletableFuture<T> result = CompletableFuture.supplyAsync(() -> {
+            long startNanos = System.nanoTime();
+            synchronized (runner) {
+                runner.set(Thread.currentThread());
+            }
+            try (RunMetrics.Timing timing = metrics.time(metricName(name))) {
+                T value = body.run();
+                timing.success();
+                logger.info("Stage '{}' finished in {} ms", name,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                return value;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                synchronized (runner) {
+                    runner.set(null);
+                    Thread.interrupted();
+                }
+            }
+        }, executor);
+        if (timeoutSeconds > 0) {
+            // Completing first wins, so this is a no-op if the stage already finished
+            CompletableFuture.delayedExecutor(timeoutSeconds, TimeUnit.SECONDS).execute(() -> {
+                if (result.completeExceptionally(new TimeoutException(
+                        "Stage '" + name + "' timed out after " + timeoutSeconds + " s"))) {
+                    metrics.stage(metricName(name)).timeouts.incrementAndGet();
+                    // Cancel the abandoned work: blocking calls in the body and its fetches see the interrupt
+                    synchronized (runner) {
+                        Thread thread = runner.get();
+                        if (thread != null) {
+                            thread.interrupt();
+                        }
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    private static String metricName(String stage) {
+        return "stage." + stage.replace(' ', '_');
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
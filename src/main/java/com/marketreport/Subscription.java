@@ -0,0 +1,99 @@
+package com.marketreport;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// One subscriber's personalised report settings. Loaded from a JSON file of the form
+// [{"email": "a@example.com", "symbols": ["AAPL", "^GSPC"], "keywords": ["fed", "earning*"]}]
+// Keywords match on word boundaries like the relevance keywords, so a trailing
+// '*' is needed to match longer words.
+public class Subscription {
+    public final String email;
+    public final List<String> symbols;
+    public final List<String> keywords;
+    private final KeywordScorer keywordMatcher;
+
+    public Subscription(String email, List<String> symbols, List<String> keywords) {
+        this.email = email;
+        this.symbols = Collections.unmodifiableList(new ArrayList<>(symbols));
+        this.keywords = Collections.unmodifiableList(new ArrayList<>(keywords));
+        this.keywordMatcher = keywords.isEmpty()
+                ? null : new KeywordScorer(this.keywords, Collections.nCopies(keywords.size(), 1));
+    }
+
+    // A subscriber without keywords receives every headline
+    public boolean matches(String title, String description) {
+        return keywordMatcher == null || keywordMatcher.score(title, description) > 0;
+    }
+
+    public static List<Subscription> loadAll(Path file) throws IOException {
+        List<Subscription> subscriptions = new ArrayList<>();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             JsonReader reader = new JsonReader(in)) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                subscriptions.add(read(reader));
+            }
+            reader.endArray();
+        }
+        return subscriptions;
+    }
+
+    private static Subscription read(JsonReader reader) throws IOException {
+        String email = null;
+        List<String> symbols = new ArrayList<>();
+        List<String> keywords = new ArrayList<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "email":
+                    email = reader.nextString().trim();
+                    break;
+                case "symbols":
+                    readStrings(reader, symbols, false);
+                    break;
+                case "keywords":
+                    readStrings(reader, keywords, true);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (email == null || email.isEmpty()) {
+            throw new IOException("Subscription without email at " + reader.getPath());
+        }
+        try {
+            return new Subscription(email, symbols, keywords);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid keywords for " + email + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void readStrings(JsonReader reader, List<String> into, boolean lowerCase) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String value = reader.nextString().trim();
+            if (!value.isEmpty()) {
+                into.add(lowerCase ? value.toLowerCase(Locale.ROOT) : value);
+            }
+        }
+        reader.endArray();
+    }
+}
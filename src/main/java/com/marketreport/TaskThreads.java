@@ -0,0 +1,16 @@
+package com.marketreport;
+
+import java.util.concurrent.ExecutorService;
+
+// Executors for blocking I/O tasks. This is the JDK 11 version, backed by
+// daemon platform threads; the multi-release jar carries a JDK 21 version
+// under src/main/java21 that gives every task its own virtual thread.
+public final class TaskThreads {
+    private TaskThreads() {
+    }
+
+    // Threads are named <name>-N; platformThreads <= 0 means grow on demand
+    public static ExecutorService newExecutor(String name, int platformThreads) {
+        return PlatformThreads.newExecutor(name, platformThreads);
+    }
+}
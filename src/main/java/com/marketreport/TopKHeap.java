@@ -0,0 +1,98 @@
+package com.marketreport;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+// Bounded min-heap that keeps the best k items offered to it, so memory stays
+// O(k) however many items stream through. Ties keep the earlier offer.
+// Safe for concurrent producers.
+public class TopKHeap<T> {
+    private final int capacity;
+    private final Comparator<T> order;
+    private final PriorityQueue<Entry<T>> heap;
+    private final Consumer<T> evictionListener;
+    private long sequence;
+
+    private static final class Entry<T> {
+        final T item;
+        final long sequence;
+
+        Entry(T item, long sequence) {
+            this.item = item;
+            this.sequence = sequence;
+        }
+    }
+
+    // 'order' ranks items ascending by quality: the greatest item is the best
+    public TopKHeap(int capacity, Comparator<T> order) {
+        this(capacity, order, null);
+    }
+
+    // The listener is told about items pushed out by better ones
+    public TopKHeap(int capacity, Comparator<T> order, Consumer<T> evictionListener) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.order = order;
+        this.evictionListener = evictionListener;
+        // Worst entry at the head so it can be evicted in O(log k)
+        this.heap = new PriorityQueue<>(capacity, this::compareEntries);
+    }
+
+    // Returns true if the item was kept
+    public synchronized boolean offer(T item) {
+        Entry<T> entry = new Entry<>(item, sequence++);
+        if (heap.size() < capacity) {
+            heap.add(entry);
+            return true;
+        }
+        if (compareEntries(entry, heap.peek()) <= 0) {
+            return false;
+        }
+        Entry<T> evicted = heap.poll();
+        heap.add(entry);
+        if (evictionListener != null) {
+            evictionListener.accept(evicted.item);
+        }
+        return true;
+    }
+
+    public synchronized boolean remove(T item) {
+        return heap.removeIf(entry -> entry.item == item);
+    }
+
+    public synchronized boolean isFull() {
+        return heap.size() >= capacity;
+    }
+
+    public synchronized int size() {
+        return heap.size();
+    }
+
+    // Weakest retained item, or null if empty
+    public synchronized T floor() {
+        Entry<T> head = heap.peek();
+        return head == null ? null : head.item;
+    }
+
+    // Retained items, best first
+    public synchronized List<T> toSortedList() {
+        List<Entry<T>> entries = new ArrayList<>(heap);
+        entries.sort((a, b) -> compareEntries(b, a));
+        List<T> items = new ArrayList<>(entries.size());
+        for (Entry<T> entry : entries) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    private int compareEntries(Entry<T> a, Entry<T> b) {
+        int cmp = order.compare(a.item, b.item);
+        // Earlier offers rank higher on ties
+        return cmp != 0 ? cmp : Long.compare(b.sequence, a.sequence);
+    }
+}
@@ -0,0 +1,71 @@
+package com.marketreport;
+
+import com.google.gson.stream.JsonReader;
+import okhttp3.CacheControl;
+import okhttp3.Request;
+
+import java.io.IOException;
+import java.util.List;
+
+// Quotes from Yahoo Finance: one v8 chart request per symbol. The v7 batch quote
+// endpoint would need a cookie and crumb handshake, so it isn't used. Every call
+// goes through the resilience policy.
+public class YahooMarketDataProvider implements MarketDataProvider {
+    public static final String HOST = "query1.finance.yahoo.com";
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36";
+
+    private final FetchEngine fetchEngine;
+    private final ResilientHttp resilientHttp;
+    private final String baseUrl;
+
+    public YahooMarketDataProvider(FetchEngine fetchEngine, ResilientHttp resilientHttp) {
+        this(fetchEngine, resilientHttp, "https://" + HOST);
+    }
+
+    // baseUrl lets tests point the provider at a local server
+    YahooMarketDataProvider(FetchEngine fetchEngine, ResilientHttp resilientHttp, String baseUrl) {
+        this.fetchEngine = fetchEngine;
+        this.resilientHttp = resilientHttp;
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public String host() {
+        return HOST;
+    }
+
+    @Override
+    public List<MarketData> fetchQuotes(List<String> symbols) throws InterruptedException {
+        return fetchEngine.fetchAll(HOST, symbols, symbol -> fetchYahooFinanceData(symbol, false));
+    }
+
+    @Override
+    public List<MarketData> fetchFreshQuotes(List<String> symbols) throws InterruptedException {
+        return fetchEngine.fetchAll(HOST, symbols, symbol -> fetchYahooFinanceData(symbol, true));
+    }
+
+    private MarketData fetchYahooFinanceData(String symbol, boolean fresh) throws IOException {
+        // Yahoo Finance API endpoint
+        String url = String.format(
+            "%s/v8/finance/chart/%s?interval=1d&range=5d",
+            baseUrl, symbol
+        );
+
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .addHeader("User-Agent", USER_AGENT);
+        if (fresh) {
+            // Still stored, so later cached reads see the newest quote
+            builder.cacheControl(CacheControl.FORCE_NETWORK);
+        }
+        Request request = builder.build();
+
+        // Retried, hedged and circuit-broken; a symbol that still fails is dropped by the fetch engine
+        return resilientHttp.execute("yahoo.chart", request, response -> {
+            // Stream the payload; the large timestamp/indicator arrays are skipped
+            try (JsonReader reader = new JsonReader(response.body().charStream())) {
+                return ResponseParsers.parseYahooChart(reader, symbol);
+            }
+        });
+    }
+}
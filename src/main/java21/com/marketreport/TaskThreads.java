@@ -0,0 +1,24 @@
+package com.marketreport;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// JDK 21 version: one virtual thread per task unless VIRTUAL_THREADS=false.
+// Blocking calls park the virtual thread instead of holding a platform
+// thread, so concurrency is bounded by the per-host permits and the rate
+// limiter rather than by pool sizes. The JVM can't measure allocation on
+// virtual threads, so RunMetrics reports it as unavailable for their stages.
+public final class TaskThreads {
+    private static final boolean VIRTUAL = Boolean.parseBoolean(EnvConfig.getString("VIRTUAL_THREADS", "true"));
+
+    private TaskThreads() {
+    }
+
+    // Threads are named <name>-N; platformThreads sizes the pool only when virtual threads are off
+    public static ExecutorService newExecutor(String name, int platformThreads) {
+        if (VIRTUAL) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+        }
+        return PlatformThreads.newExecutor(name, platformThreads);
+    }
+}
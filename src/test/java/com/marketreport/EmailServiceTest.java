@@ -0,0 +1,271 @@
+package com.marketreport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Delivery against an in-process SMTP server: recipient grouping, pooled
+// connections, and per-recipient retries and rejections.
+public class EmailServiceTest {
+    private static final String[] SETTINGS = {
+        "GMAIL_USER", "GMAIL_PASSWORD", "WORK_EMAIL_LIST", "SMTP_HOST", "SMTP_PORT", "SMTP_AUTH",
+        "SMTP_STARTTLS", "SMTP_POOL_SIZE", "SMTP_RECIPIENTS_PER_MESSAGE", "SMTP_MAX_RETRIES", "EMAIL_LAYOUT",
+        "EMAIL_INLINE_MAX_KB",
+    };
+    private static final MarketDataBatch EMPTY_BATCH = MarketDataBatch.of(Collections.emptyList());
+
+    private SmtpStandIn server;
+    private File report;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new SmtpStandIn();
+        report = temporaryReport(256);
+        System.setProperty("GMAIL_USER", "report@example.com");
+        System.setProperty("SMTP_HOST", "127.0.0.1");
+        System.setProperty("SMTP_PORT", String.valueOf(server.port()));
+        System.setProperty("SMTP_AUTH", "false");
+        System.setProperty("SMTP_STARTTLS", "false");
+        System.setProperty("SMTP_POOL_SIZE", "4");
+        System.setProperty("SMTP_RECIPIENTS_PER_MESSAGE", "50");
+        System.setProperty("SMTP_MAX_RETRIES", "2");
+        System.setProperty("EMAIL_LAYOUT", "inline");
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        for (String setting : SETTINGS) {
+            System.clearProperty(setting);
+        }
+        server.close();
+    }
+
+    @Test
+    public void deliversLargeListsInGroupsOverPooledConnections() {
+        List<String> recipients = addresses("member", 2_000);
+        System.setProperty("WORK_EMAIL_LIST", String.join(",", recipients));
+
+        try (EmailService email = new EmailService(new RunMetrics(), new ReportRenderer())) {
+            email.sendReport(report, EMPTY_BATCH, Collections.emptyList());
+        }
+
+        assertEquals(new HashSet<>(recipients), server.delivered());
+        assertEquals(recipients.size(), server.deliveredCount());
+        assertEquals(40, server.messages());
+        assertTrue("opened " + server.connections() + " connections", server.connections() <= 4);
+    }
+
+    @Test
+    public void retriesDeferredRecipientsAndSkipsRejectedOnes() {
+        List<String> recipients = addresses("member", 120);
+        recipients.add("busy-1@example.com");
+        recipients.add("busy-2@example.com");
+        recipients.add("rejected@example.com");
+        System.setProperty("WORK_EMAIL_LIST", String.join(",", recipients));
+
+        try (EmailService email = new EmailService(new RunMetrics(), new ReportRenderer())) {
+            email.sendReport(report, EMPTY_BATCH, Collections.emptyList());
+        }
+
+        Set<String> expected = new HashSet<>(recipients);
+        expected.remove("rejected@example.com");
+        assertEquals(expected, server.delivered());
+        assertEquals(expected.size(), server.deliveredCount());
+        assertFalse(server.delivered().contains("rejected@example.com"));
+    }
+
+    @Test
+    public void personalReportsOverTheInlineLimitGoOutAsAttachments() throws IOException {
+        System.setProperty("EMAIL_LAYOUT", "auto");
+        System.setProperty("EMAIL_INLINE_MAX_KB", "1");
+        File small = temporaryReport(512);
+        File large = temporaryReport(4 * 1024);
+
+        try (EmailService email = new EmailService(new RunMetrics(), new ReportRenderer())) {
+            email.sendPersonalReport("small@example.com", small, EMPTY_BATCH, Collections.emptyList());
+            email.sendPersonalReport("large@example.com", large, EMPTY_BATCH, Collections.emptyList());
+        }
+
+        assertFalse(server.body("small@example.com").contains("multipart/mixed"));
+        assertTrue(server.body("large@example.com").contains("multipart/mixed"));
+        assertTrue(server.body("large@example.com").contains(".html.gz"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void failsWhenNoRecipientAcceptsTheReport() {
+        System.setProperty("WORK_EMAIL_LIST", "rejected@example.com");
+
+        try (EmailService email = new EmailService(new RunMetrics(), new ReportRenderer())) {
+            email.sendReport(report, EMPTY_BATCH, Collections.emptyList());
+        }
+    }
+
+    private static File temporaryReport(int bytes) throws IOException {
+        File report = File.createTempFile("report", ".html");
+        report.deleteOnExit();
+        StringBuilder html = new StringBuilder("<html><body>");
+        while (html.length() < bytes) {
+            html.append("<p>Row</p>\n");
+        }
+        Files.write(report.toPath(), html.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8));
+        return report;
+    }
+
+    private static List<String> addresses(String prefix, int count) {
+        List<String> addresses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            addresses.add(prefix + i + "@example.com");
+        }
+        return addresses;
+    }
+
+    // Minimal SMTP server. RCPT answers 550 for addresses starting with "rejected"
+    // and 451 the first time it sees one starting with "busy"; everything else is
+    // accepted. Recipients count as delivered once their message's DATA completes,
+    // and the message is kept for each of them.
+    private static final class SmtpStandIn implements AutoCloseable {
+        private final ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        private final ExecutorService sessions = Executors.newCachedThreadPool();
+        private final Set<String> deferredOnce = Collections.synchronizedSet(new HashSet<>());
+        private final List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        private final Map<String, String> bodies = new ConcurrentHashMap<>();
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger messages = new AtomicInteger();
+
+        SmtpStandIn() throws IOException {
+            sessions.execute(() -> {
+                while (!socket.isClosed()) {
+                    try {
+                        Socket client = socket.accept();
+                        connections.incrementAndGet();
+                        sessions.execute(() -> serve(client));
+                    } catch (IOException e) {
+                        return; // closed
+                    }
+                }
+            });
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        Set<String> delivered() {
+            synchronized (delivered) {
+                return new HashSet<>(delivered);
+            }
+        }
+
+        String body(String recipient) {
+            return bodies.getOrDefault(recipient, "");
+        }
+
+        int deliveredCount() {
+            return delivered.size();
+        }
+
+        int connections() {
+            return connections.get();
+        }
+
+        int messages() {
+            return messages.get();
+        }
+
+        private void serve(Socket client) {
+            try (Socket connection = client;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(
+                         connection.getInputStream(), StandardCharsets.US_ASCII));
+                 Writer out = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.US_ASCII)) {
+                reply(out, "220 localhost stand-in ready");
+                List<String> recipients = new ArrayList<>();
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase();
+                    if (command.startsWith("EHLO")) {
+                        reply(out, "250-localhost\r\n250 8BITMIME");
+                    } else if (command.startsWith("HELO") || command.startsWith("NOOP")) {
+                        reply(out, "250 OK");
+                    } else if (command.startsWith("MAIL FROM") || command.startsWith("RSET")) {
+                        recipients.clear();
+                        reply(out, "250 OK");
+                    } else if (command.startsWith("RCPT TO")) {
+                        String address = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+                        if (address.startsWith("rejected")) {
+                            reply(out, "550 5.1.1 No such user");
+                        } else if (address.startsWith("busy") && deferredOnce.add(address)) {
+                            reply(out, "451 4.3.0 Try again later");
+                        } else {
+                            recipients.add(address);
+                            reply(out, "250 OK");
+                        }
+                    } else if (command.startsWith("DATA")) {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder body = new StringBuilder();
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            body.append(line).append('\n');
+                        }
+                        for (String recipient : recipients) {
+                            bodies.put(recipient, body.toString());
+                        }
+                        delivered.addAll(recipients);
+                        recipients.clear();
+                        messages.incrementAndGet();
+                        reply(out, "250 OK queued");
+                    } else if (command.startsWith("QUIT")) {
+                        reply(out, "221 Bye");
+                        return;
+                    } else {
+                        reply(out, "502 Command not implemented");
+                    }
+                }
+            } catch (IOException e) {
+                // The client hung up
+            }
+        }
+
+        private static void reply(Writer out, String response) throws IOException {
+            out.write(response);
+            out.write("\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+            sessions.shutdownNow();
+            try {
+                sessions.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.marketreport;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.marketreport.NearDuplicateIndexTest.FED_COPY_DESCRIPTION;
+import static com.marketreport.NearDuplicateIndexTest.FED_COPY_TITLE;
+import static com.marketreport.NearDuplicateIndexTest.FED_DESCRIPTION;
+import static com.marketreport.NearDuplicateIndexTest.FED_TITLE;
+import static com.marketreport.NearDuplicateIndexTest.OIL_DESCRIPTION;
+import static com.marketreport.NearDuplicateIndexTest.OIL_TITLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HeadlineSelectorTest {
+
+    @Test
+    public void nearDuplicatesCollapseToTheHighestScoringCopy() {
+        HeadlineSelector selector = new HeadlineSelector(5, 6);
+        assertTrue(offer(selector, FED_TITLE, FED_DESCRIPTION, "wire", 4));
+        assertTrue(offer(selector, FED_COPY_TITLE, FED_COPY_DESCRIPTION, "better", 7));
+        // Neither a lower nor an equal score displaces the retained copy
+        assertFalse(offer(selector, FED_TITLE, FED_DESCRIPTION, "worse", 5));
+        assertFalse(offer(selector, FED_COPY_TITLE, FED_COPY_DESCRIPTION, "tie", 7));
+
+        List<NewsHeadline> top = selector.top();
+        assertEquals(1, top.size());
+        assertEquals("better", top.get(0).source);
+        assertEquals(7, top.get(0).relevanceScore);
+        assertEquals(4, selector.articlesSeen());
+        assertEquals(3, selector.duplicatesDropped());
+    }
+
+    @Test
+    public void distinctStoriesAreKept() {
+        HeadlineSelector selector = new HeadlineSelector(5, 6);
+        assertTrue(offer(selector, FED_TITLE, FED_DESCRIPTION, "wire", 4));
+        assertTrue(offer(selector, OIL_TITLE, OIL_DESCRIPTION, "wire", 3));
+        assertTrue(offer(selector, FED_COPY_TITLE, FED_COPY_DESCRIPTION, "wire", 6));
+
+        List<NewsHeadline> top = selector.top();
+        assertEquals(2, top.size());
+        assertEquals(FED_COPY_TITLE, top.get(0).title);
+        assertEquals(OIL_TITLE, top.get(1).title);
+        assertEquals(1, selector.duplicatesDropped());
+    }
+
+    @Test
+    public void aStoryEvictedFromTheTopKCanComeBackWithABetterCopy() {
+        HeadlineSelector selector = new HeadlineSelector(1, 6);
+        assertTrue(offer(selector, FED_TITLE, FED_DESCRIPTION, "wire", 2));
+        assertTrue(offer(selector, OIL_TITLE, OIL_DESCRIPTION, "wire", 5));
+        // The Fed story was pushed out; a better copy of it still has to beat the floor
+        assertFalse(offer(selector, FED_COPY_TITLE, FED_COPY_DESCRIPTION, "wire", 4));
+        assertTrue(offer(selector, FED_COPY_TITLE, FED_COPY_DESCRIPTION, "wire", 6));
+
+        List<NewsHeadline> top = selector.top();
+        assertEquals(1, top.size());
+        assertEquals(FED_COPY_TITLE, top.get(0).title);
+    }
+
+    @Test
+    public void negativeDistanceKeepsEveryCopy() {
+        HeadlineSelector selector = new HeadlineSelector(5, -1);
+        assertTrue(offer(selector, FED_TITLE, FED_DESCRIPTION, "wire", 4));
+        assertTrue(offer(selector, FED_TITLE, FED_DESCRIPTION, "wire", 4));
+        assertEquals(2, selector.size());
+        assertEquals(0, selector.duplicatesDropped());
+    }
+
+    private static boolean offer(HeadlineSelector selector, String title, String description, String source,
+                                 int score) {
+        return selector.offer(title, description, source, "2024-03-15T12:00:00Z", "https://example.com", score);
+    }
+}
@@ -0,0 +1,120 @@
+package com.marketreport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HistoryStoreTest {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 3, 1);
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("history");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void readsBackWhatWasWrittenAfterReopening() throws IOException {
+        HistoryStore store = new HistoryStore(directory);
+        store.append(FIRST_DAY, Arrays.asList(quote("AAPL", 100, 1_000), quote("MSFT", 400, 2_000)));
+        store.append(FIRST_DAY.plusDays(1), Arrays.asList(quote("AAPL", 110, 3_000), quote("NVDA", 900, 5_000)));
+        // Re-running a day replaces its rows for the symbols given and keeps the others
+        store.append(FIRST_DAY.plusDays(1), Collections.singletonList(quote("AAPL", 120, 4_000)));
+
+        HistoryStore.Window window = new HistoryStore(directory).window(5);
+        assertEquals(2, window.size());
+
+        HistoryStore.Series aapl = window.series("AAPL");
+        assertEquals(2, aapl.size());
+        assertEquals(FIRST_DAY.toEpochDay(), aapl.epochDay(0));
+        assertEquals(100, aapl.close(0), 0.0);
+        assertEquals(1_000, aapl.volume(0));
+        assertEquals(120, aapl.close(1), 0.0);
+        assertEquals(4_000, aapl.volume(1));
+        assertEquals(20, aapl.changePercent(1), 1e-9);
+        assertEquals(4.0, aapl.volumeRatio(1), 1e-9);
+
+        // Not quoted on the second day
+        HistoryStore.Series msft = window.series("MSFT");
+        assertEquals(2, msft.size());
+        assertEquals(Double.NaN, msft.close(1), 0.0);
+        assertEquals(-1, msft.volume(1));
+
+        // Added on the second day, so its series starts there
+        HistoryStore.Series nvda = window.series("NVDA");
+        assertEquals(1, nvda.size());
+        assertEquals(FIRST_DAY.plusDays(1).toEpochDay(), nvda.epochDay(0));
+        assertEquals(900, nvda.close(0), 0.0);
+        assertEquals(Double.NaN, nvda.changePercent(1), 0.0);
+
+        assertNull(window.series("TSLA"));
+    }
+
+    @Test
+    public void windowsStayCorrectAcrossMoreDaysThanStayMapped() throws IOException {
+        HistoryStore store = new HistoryStore(directory);
+        int days = 150;
+        for (int day = 0; day < days; day++) {
+            store.append(FIRST_DAY.plusDays(day), Collections.singletonList(quote("SPY", 100 + day, day)));
+        }
+
+        // Alternate window sizes so mappings are reused, evicted and mapped again
+        for (int bars : new int[] {50, 20, 120, 50, 149}) {
+            HistoryStore.Series spy = store.window(bars).series("SPY");
+            assertEquals(bars + 1, spy.size());
+            for (int i = 0; i < spy.size(); i++) {
+                int day = days - 1 - bars + i;
+                assertEquals(FIRST_DAY.plusDays(day).toEpochDay(), spy.epochDay(i));
+                assertEquals(100 + day, spy.close(i), 0.0);
+                assertEquals(day, spy.volume(i));
+            }
+        }
+    }
+
+    @Test
+    public void discardsAPartialDictionaryLine() throws IOException {
+        HistoryStore store = new HistoryStore(directory);
+        store.append(FIRST_DAY, Collections.singletonList(quote("AAPL", 100, 1_000)));
+        // A crash mid-append leaves a symbol without its newline
+        Files.write(directory.resolve("symbols.txt"), "MS".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        HistoryStore reopened = new HistoryStore(directory);
+        reopened.append(FIRST_DAY.plusDays(1), Arrays.asList(quote("MSFT", 400, 2_000), quote("AAPL", 101, 1_100)));
+
+        List<String> dictionary = Files.readAllLines(directory.resolve("symbols.txt"), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("AAPL", "MSFT"), dictionary);
+        HistoryStore.Window window = new HistoryStore(directory).window(5);
+        assertEquals(101, window.series("AAPL").close(1), 0.0);
+        assertEquals(400, window.series("MSFT").close(0), 0.0);
+    }
+
+    private static MarketData quote(String symbol, double price, long volume) {
+        return new MarketData(symbol, symbol, price, price, 0, 0, volume, 0, 0, 0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.marketreport;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class HtmlWriterTest {
+
+    @Test
+    public void fixedMatchesStringFormatOnTies() throws IOException {
+        double[] values = {1.005, 2.675, 1.115, 123.455, 0.125, 0.5, 1.5, 2.5, 0.045, 999.995, 1e9 + 0.005};
+        for (double value : values) {
+            assertFormatted(value);
+            assertFormatted(-value);
+        }
+    }
+
+    @Test
+    public void fixedKeepsTheSignOfNegativeZero() throws IOException {
+        assertEquals("-0.00", fixed(-0.001, 2));
+        assertEquals("-0.00", signedFixed(-0.001, 2));
+        assertEquals("-0.00", fixed(-0.0, 2));
+        assertEquals("+0.00", signedFixed(0.0, 2));
+        assertFormatted(-0.004);
+        assertFormatted(-0.0);
+    }
+
+    @Test
+    public void fixedMatchesStringFormatOnRandomValues() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            // Prices on a cent or half-cent grid hit ties; the rest are arbitrary doubles
+            double value = i % 2 == 0
+                    ? (random.nextInt(2_000_000) - 1_000_000) / 1000.0
+                    : random.nextGaussian() * Math.pow(10, random.nextInt(10));
+            assertFormatted(value);
+        }
+    }
+
+    @Test
+    public void fixedWritesNonFiniteValuesLikeStringFormat() throws IOException {
+        assertFormatted(Double.NaN);
+        assertFormatted(Double.POSITIVE_INFINITY);
+        assertFormatted(Double.NEGATIVE_INFINITY);
+    }
+
+    private static void assertFormatted(double value) throws IOException {
+        for (int decimals = 0; decimals <= 3; decimals++) {
+            assertEquals("%." + decimals + "f of " + value,
+                    String.format(Locale.ROOT, "%." + decimals + "f", value), fixed(value, decimals));
+            assertEquals("%+." + decimals + "f of " + value,
+                    String.format(Locale.ROOT, "%+." + decimals + "f", value), signedFixed(value, decimals));
+        }
+    }
+
+    private static String fixed(double value, int decimals) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (HtmlWriter out = new HtmlWriter(buffer)) {
+            out.fixed(value, decimals);
+        }
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String signedFixed(double value, int decimals) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (HtmlWriter out = new HtmlWriter(buffer)) {
+            out.signedFixed(value, decimals);
+        }
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
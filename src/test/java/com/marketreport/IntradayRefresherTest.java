@@ -0,0 +1,66 @@
+package com.marketreport;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class IntradayRefresherTest {
+    private static final List<String> WATCHLIST = Arrays.asList("SPY", "QQQ", "AAPL", "MSFT", "NVDA");
+
+    // One line per row, enough to check order and content
+    private static final IntradayRefresher.RowRenderer ROWS =
+            (out, batch, row) -> out.text(batch.symbol[row] + " " + batch.currentPrice[row] + "\n");
+
+    @Test
+    public void lateSymbolsAreInsertedAtTheirWatchlistPosition() throws IOException {
+        // QQQ and NVDA failed on the first fetch
+        IntradayRefresher refresher = new IntradayRefresher(MarketDataBatch.of(Arrays.asList(
+                quote("SPY", 100, 101), quote("AAPL", 100, 99), quote("MSFT", 100, 100.5)), WATCHLIST.size()),
+                WATCHLIST, ROWS);
+
+        assertEquals(2, refresher.apply(Arrays.asList(quote("NVDA", 100, 110), quote("QQQ", 100, 102))));
+
+        assertEquals("SPY 101.0\nQQQ 102.0\nAAPL 99.0\nMSFT 100.5\nNVDA 110.0\n", rows(refresher));
+        MarketDataBatch snapshot = refresher.snapshot();
+        for (int row = 0; row < WATCHLIST.size(); row++) {
+            assertEquals(row, snapshot.indexOf(WATCHLIST.get(row)));
+        }
+        assertEquals(4, refresher.positiveCount());
+        assertEquals("NVDA", snapshot.symbol[refresher.topMoverRow()]);
+
+        // Later updates land on the shifted rows
+        assertEquals(1, refresher.apply(Arrays.asList(quote("AAPL", 100, 80), quote("SPY", 100, 101))));
+        assertEquals("SPY 101.0\nQQQ 102.0\nAAPL 80.0\nMSFT 100.5\nNVDA 110.0\n", rows(refresher));
+        assertEquals("AAPL", snapshot.symbol[refresher.topMoverRow()]);
+    }
+
+    @Test
+    public void unchangedAndUnknownQuotesChangeNothing() throws IOException {
+        IntradayRefresher refresher = new IntradayRefresher(MarketDataBatch.of(Arrays.asList(
+                quote("SPY", 100, 101), quote("AAPL", 100, 99)), WATCHLIST.size()), WATCHLIST, ROWS);
+
+        assertEquals(0, refresher.apply(Arrays.asList(quote("SPY", 100, 101), quote("TSLA", 100, 120))));
+        assertEquals("SPY 101.0\nAAPL 99.0\n", rows(refresher));
+        assertEquals(1, refresher.positiveCount());
+    }
+
+    private static String rows(IntradayRefresher refresher) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (HtmlWriter out = new HtmlWriter(buffer)) {
+            refresher.writeRows(out);
+        }
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static MarketData quote(String symbol, double previousClose, double price) {
+        double change = price - previousClose;
+        return new MarketData(symbol, symbol, previousClose, price, change, change / previousClose * 100,
+                1_000_000, 0.0, 0.0, 0.0);
+    }
+}
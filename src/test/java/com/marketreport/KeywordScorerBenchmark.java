@@ -0,0 +1,104 @@
+package com.marketreport;
+
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Relevance scoring as the report used to do it (lowercase the concatenated
+// title and description, then one contains() per keyword) against
+// KeywordScorer's single pass, over the articles in the NewsAPI fixture.
+// Scores are nanoseconds per article; with -prof gc gc.alloc.rate.norm is the
+// bytes allocated per article.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordScorerBenchmark {
+    private static final int ARTICLES = 100;
+
+    private static final String[] HIGH_IMPACT_KEYWORDS = {
+        "federal reserve", "fed", "interest rate", "inflation", "recession",
+        "earnings", "gdp", "unemployment", "market crash", "rally",
+        "stimulus", "trade war", "geopolitical"
+    };
+    private static final String[] MEDIUM_IMPACT_KEYWORDS = {
+        "stock market", "dow jones", "nasdaq", "s&p 500", "wall street",
+        "investor", "trading", "economic", "financial"
+    };
+
+    private final KeywordScorer scorer = KeywordScorer.defaults();
+    private final String[] titles = new String[ARTICLES];
+    private final String[] descriptions = new String[ARTICLES];
+
+    @Setup
+    public void load() throws IOException {
+        byte[] news = ResponseParsersBenchmark.fixture("newsapi-everything.json");
+        List<String[]> articles = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(news), StandardCharsets.UTF_8))) {
+            ResponseParsers.parseNewsArticles(reader,
+                    (title, description, source, publishedAt, url) -> articles.add(new String[] {title, description}));
+        }
+        // Cycle the fixture so every invocation scores the same number of articles
+        for (int i = 0; i < ARTICLES; i++) {
+            String[] article = articles.get(i % articles.size());
+            titles[i] = article[0];
+            descriptions[i] = article[1];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ARTICLES)
+    public int substringScore() {
+        int total = 0;
+        for (int i = 0; i < ARTICLES; i++) {
+            total += calculateRelevanceScore(titles[i] + " " + descriptions[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ARTICLES)
+    public int keywordScorer() {
+        int total = 0;
+        for (int i = 0; i < ARTICLES; i++) {
+            total += scorer.score(titles[i], descriptions[i]);
+        }
+        return total;
+    }
+
+    private static int calculateRelevanceScore(String text) {
+        String textLower = text.toLowerCase();
+        int score = 0;
+        for (String keyword : HIGH_IMPACT_KEYWORDS) {
+            if (textLower.contains(keyword)) {
+                score += 3;
+            }
+        }
+        for (String keyword : MEDIUM_IMPACT_KEYWORDS) {
+            if (textLower.contains(keyword)) {
+                score += 1;
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,220 @@
+package com.marketreport;
+
+import com.google.gson.stream.JsonReader;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeywordScorerTest {
+    // The substring scorer's lists, which defaults() replaced
+    private static final List<String> OLD_HIGH_IMPACT = Arrays.asList(
+            "federal reserve", "fed", "interest rate", "inflation", "recession",
+            "earnings", "gdp", "unemployment", "market crash", "rally",
+            "stimulus", "trade war", "geopolitical");
+    private static final List<String> OLD_MEDIUM_IMPACT = Arrays.asList(
+            "stock market", "dow jones", "nasdaq", "s&p 500", "wall street",
+            "investor", "trading", "economic", "financial");
+
+    private final KeywordScorer scorer = KeywordScorer.defaults();
+
+    @Test
+    public void matchesWholeWordsOnly() {
+        assertEquals(3, scorer.score("Fed holds steady"));
+        assertEquals(3, scorer.score("All eyes on the Fed."));
+        assertEquals(6, scorer.score("post-fed rally fades"));
+        assertEquals(0, scorer.score("Feds raid offices"));
+        assertEquals(0, scorer.score("FedEx shares slip"));
+        assertEquals(0, scorer.score("Federal budget talks"));
+        assertEquals(0, scorer.score("Nasdaq100 futures"));
+    }
+
+    @Test
+    public void starKeywordsOnlyNeedTheLeadingBoundary() {
+        assertEquals(3, scorer.score("Earnings season"));
+        assertEquals(3, scorer.score("earning power"));
+        assertEquals(3, scorer.score("Stocks rallied"));
+        assertEquals(1, scorer.score("Investors wait"));
+        assertEquals(0, scorer.score("preearnings drift"));
+        assertEquals(0, scorer.score("Coinvestor fund"));
+        // Without a '*' the end boundary still applies
+        assertEquals(0, scorer.score("GDPNow estimate"));
+    }
+
+    @Test
+    public void scoresTwoFieldsAsIfJoinedByASpace() {
+        assertEquals(scorer.score("Federal Reserve"), scorer.score("Federal", "Reserve"));
+        assertEquals(3, scorer.score("Federal", "Reserve"));
+        // The join is a boundary: "fed" + "ex" is not "fedex"
+        assertEquals(3, scorer.score("fed", "ex"));
+        assertEquals(0, scorer.score("fedex", ""));
+        assertEquals(3, scorer.score("", "fed"));
+        assertEquals(scorer.score("Fed"), scorer.score("Fed", ""));
+    }
+
+    @Test
+    public void countsEachKeywordOnce() {
+        assertEquals(3, scorer.score("Fed, fed and FED"));
+        assertEquals(3, scorer.score("The Fed said", "the Fed will"));
+        assertEquals(6, scorer.score("Fed watches inflation, inflation, inflation"));
+        // Scoring again starts from scratch
+        assertEquals(3, scorer.score("Fed"));
+        assertEquals(3, scorer.score("Fed"));
+    }
+
+    @Test
+    public void handlesNonAsciiText() {
+        assertEquals(3, scorer.score("The Fed’s decision"));
+        assertEquals(3, scorer.score("Café owners brace for the fed"));
+        assertEquals(6, scorer.score("Fed — inflation cools"));
+        // Non-ASCII letters are word characters, so they block a match
+        assertEquals(0, scorer.score("éfed"));
+        assertEquals(0, scorer.score("fedé"));
+        // Full-width letters are not folded to ASCII
+        assertEquals(0, scorer.score("Ｆｅｄ"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonAsciiKeywords() {
+        new KeywordScorer(Collections.singletonList("zürich"), Collections.singletonList(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyKeywords() {
+        new KeywordScorer(Collections.singletonList("*"), Collections.singletonList(1));
+    }
+
+    @Test
+    public void maxScoreIsTheSumOfTheWeights() {
+        assertEquals(13 * 3 + 9, scorer.maxScore());
+    }
+
+    @Test
+    public void matchesARegexReferenceOnTheNewsFixture() throws IOException {
+        List<Pattern> patterns = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (String keyword : Arrays.asList(
+                "federal reserve", "fed", "interest rate*", "inflation*", "recession*",
+                "earning*", "gdp", "unemploy*", "market crash*", "rall*",
+                "stimul*", "trade war*", "geopolitic*")) {
+            patterns.add(wordPattern(keyword));
+            weights.add(3);
+        }
+        for (String keyword : Arrays.asList(
+                "stock market*", "dow jones", "nasdaq", "s&p 500", "wall street",
+                "investor*", "trading", "economic*", "financial*")) {
+            patterns.add(wordPattern(keyword));
+            weights.add(1);
+        }
+
+        for (String[] article : fixtureArticles()) {
+            String text = article[0] + " " + article[1];
+            int expected = 0;
+            for (int k = 0; k < patterns.size(); k++) {
+                expected += patterns.get(k).matcher(text).find() ? weights.get(k) : 0;
+            }
+            assertEquals(text, expected, scorer.score(article[0], article[1]));
+        }
+    }
+
+    // The defaults keep the old scores wherever whole-word and substring matching
+    // agree; they differ only where a keyword sat inside another word ("fed" in
+    // "federal") or an inflected form the old list missed
+    @Test
+    public void keepsTheOldScoresWhereWholeWordsAndSubstringsAgree() throws IOException {
+        assertEquals(oldScore("Stocks rally as inflation cools and investors cheer"),
+                scorer.score("Stocks rally as inflation cools and investors cheer"));
+        assertEquals(oldScore("Wall Street eyes GDP, earnings and the Fed"),
+                scorer.score("Wall Street eyes GDP, earnings and the Fed"));
+        assertEquals(6, oldScore("Federal Reserve holds rates"));
+        assertEquals(3, scorer.score("Federal Reserve holds rates"));
+
+        int comparable = 0;
+        List<String[]> articles = fixtureArticles();
+        for (String[] article : articles) {
+            String text = article[0] + " " + article[1];
+            if (!substringsAreWholeWords(text)) continue;
+            comparable++;
+            assertEquals(text, oldScore(text), scorer.score(article[0], article[1]));
+        }
+        // Most of the fixture is comparable, so the parity check isn't vacuous
+        assertTrue(comparable + " of " + articles.size(), comparable * 5 >= articles.size() * 4);
+    }
+
+    private static int oldScore(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        int score = 0;
+        for (String keyword : OLD_HIGH_IMPACT) {
+            score += lower.contains(keyword) ? 3 : 0;
+        }
+        for (String keyword : OLD_MEDIUM_IMPACT) {
+            score += lower.contains(keyword) ? 1 : 0;
+        }
+        return score;
+    }
+
+    // True when every old keyword's substring match is also a match of its replacement in defaults()
+    private static boolean substringsAreWholeWords(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        List<String> oldKeywords = new ArrayList<>(OLD_HIGH_IMPACT);
+        oldKeywords.addAll(OLD_MEDIUM_IMPACT);
+        for (String keyword : oldKeywords) {
+            boolean substring = lower.contains(keyword);
+            boolean replacement = wordPattern(replacement(keyword)).matcher(text).find();
+            if (substring != replacement) return false;
+        }
+        return true;
+    }
+
+    private static String replacement(String oldKeyword) {
+        switch (oldKeyword) {
+            case "earnings": return "earning*";
+            case "unemployment": return "unemploy*";
+            case "rally": return "rall*";
+            case "stimulus": return "stimul*";
+            case "geopolitical": return "geopolitic*";
+            case "fed":
+            case "federal reserve":
+            case "gdp":
+            case "dow jones":
+            case "nasdaq":
+            case "s&p 500":
+            case "wall street":
+            case "trading":
+                return oldKeyword;
+            default:
+                return oldKeyword + "*";
+        }
+    }
+
+    // A keyword as KeywordScorer matches it: ASCII case-insensitive, starting on a word
+    // boundary and, without a '*', ending on one
+    private static Pattern wordPattern(String keyword) {
+        boolean prefix = keyword.endsWith("*");
+        String word = prefix ? keyword.substring(0, keyword.length() - 1) : keyword;
+        return Pattern.compile("(?<![\\p{L}\\p{Nd}])" + Pattern.quote(word) + (prefix ? "" : "(?![\\p{L}\\p{Nd}])"),
+                Pattern.CASE_INSENSITIVE);
+    }
+
+    private static List<String[]> fixtureArticles() throws IOException {
+        byte[] news = ResponseParsersBenchmark.fixture("newsapi-everything.json");
+        List<String[]> articles = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(news), StandardCharsets.UTF_8))) {
+            ResponseParsers.parseNewsArticles(reader,
+                    (title, description, source, publishedAt, url) -> articles.add(new String[] {title, description}));
+        }
+        return articles;
+    }
+}
@@ -0,0 +1,74 @@
+package com.marketreport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The report analytics over a List<MarketData>, written as the report used to
+// (streams and a boxing comparator), against the same aggregations as index
+// loops over MarketDataBatch columns. Universes are synthetic quotes from a
+// fixed seed.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarketDataBatchBenchmark {
+    @Param({"15", "10000", "100000"})
+    public int symbols;
+
+    private List<MarketData> list;
+    private MarketDataBatch batch;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(42);
+        list = new ArrayList<>(symbols);
+        for (int i = 0; i < symbols; i++) {
+            double previousClose = 10 + random.nextDouble() * 490;
+            double price = previousClose * (1 + random.nextGaussian() * 0.02);
+            double preMarketPrice = previousClose * (1 + random.nextGaussian() * 0.01);
+            list.add(new MarketData(String.format("SYM%06d", i), "Company " + i, previousClose, price,
+                    price - previousClose, (price / previousClose - 1) * 100, random.nextInt(50_000_000),
+                    preMarketPrice, preMarketPrice - previousClose, (preMarketPrice / previousClose - 1) * 100));
+        }
+        batch = MarketDataBatch.of(list);
+    }
+
+    @Benchmark
+    public long positiveCountList() {
+        return list.stream().mapToLong(d -> d.change > 0 ? 1 : 0).sum();
+    }
+
+    @Benchmark
+    public int positiveCountBatch() {
+        return batch.countPositiveChange();
+    }
+
+    @Benchmark
+    public MarketData topMoverList() {
+        return list.stream()
+                .max(Comparator.comparing(d -> Math.abs(d.changePercent)))
+                .orElse(null);
+    }
+
+    @Benchmark
+    public int topMoverBatch() {
+        return batch.indexOfTopMover();
+    }
+}
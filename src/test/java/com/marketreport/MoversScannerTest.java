@@ -0,0 +1,121 @@
+package com.marketreport;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MoversScannerTest {
+    private static final int TOP_N = 10;
+    private static final double MIN_PRICE = 1.0;
+    private static final double GAP_PERCENT = 2.0;
+    private static final long MIN_VOLUME = 100_000;
+    private static final double VOLUME_RATIO = 2.0;
+
+    private final MoversScanner scanner = new MoversScanner(TOP_N, MIN_PRICE, GAP_PERCENT, MIN_VOLUME, VOLUME_RATIO);
+
+    @Test
+    public void matchesBruteForceOnASingleLeaf() {
+        for (long seed = 0; seed < 20; seed++) {
+            assertMatchesBruteForce(seed, 300);
+        }
+    }
+
+    @Test
+    public void matchesBruteForceAcrossForkJoinSplits() {
+        for (long seed = 0; seed < 5; seed++) {
+            assertMatchesBruteForce(seed, 10_000);
+        }
+    }
+
+    @Test
+    public void skipsUnusualVolumeWithoutRatios() {
+        MarketDataBatch batch = randomBatch(new Random(7), 500);
+        assertEquals(0, scanner.scan(batch, null).unusualVolume.length);
+    }
+
+    @Test
+    public void ranksNothingPreMarketWithoutPreMarketPrices() {
+        List<MarketData> rows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            rows.add(new MarketData("S" + i, "S" + i, 100, 100 + i, i, i, 1_000_000, 0.0, 0.0, 0.0));
+        }
+        double[] ratios = new double[rows.size()];
+        Arrays.fill(ratios, 3.0);
+        MoversScanner.Movers movers = scanner.scan(MarketDataBatch.of(rows), ratios);
+        assertEquals(0, movers.gainers.length);
+        assertEquals(0, movers.losers.length);
+        assertEquals(0, movers.gapUps.length);
+        assertEquals(TOP_N, movers.unusualVolume.length);
+    }
+
+    private void assertMatchesBruteForce(long seed, int size) {
+        Random random = new Random(seed);
+        MarketDataBatch batch = randomBatch(random, size);
+        double[] ratios = new double[size];
+        for (int i = 0; i < size; i++) {
+            // Coarse values so ties are common; NaN stands for too little history
+            ratios[i] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(40) / 10.0;
+        }
+
+        MoversScanner.Movers movers = scanner.scan(batch, ratios);
+
+        IntPredicate ranked = row -> batch.currentPrice[row] >= MIN_PRICE;
+        IntPredicate preMarket = row -> ranked.test(row) && batch.preMarketPrice[row] > 0;
+        String context = "seed " + seed + ", " + size + " rows";
+        assertArrayEquals("gainers, " + context,
+                bruteForce(size, row -> preMarket.test(row) && batch.preMarketChangePercent[row] > 0,
+                        row -> batch.preMarketChangePercent[row]),
+                movers.gainers);
+        assertArrayEquals("losers, " + context,
+                bruteForce(size, row -> preMarket.test(row) && batch.preMarketChangePercent[row] < 0,
+                        row -> -batch.preMarketChangePercent[row]),
+                movers.losers);
+        assertArrayEquals("gap-ups, " + context,
+                bruteForce(size, row -> preMarket.test(row) && batch.preMarketChangePercent[row] >= GAP_PERCENT
+                                && batch.volume[row] >= MIN_VOLUME,
+                        row -> batch.preMarketChangePercent[row]),
+                movers.gapUps);
+        assertArrayEquals("unusual volume, " + context,
+                bruteForce(size, row -> ranked.test(row) && ratios[row] >= VOLUME_RATIO, row -> ratios[row]),
+                movers.unusualVolume);
+    }
+
+    // Every eligible row sorted by key, highest first and lower rows first on ties, cut to TOP_N
+    private static int[] bruteForce(int size, IntPredicate eligible, IntToDoubleFunction key) {
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            if (eligible.test(row)) rows.add(row);
+        }
+        rows.sort(Comparator.<Integer>comparingDouble(row -> -key.applyAsDouble(row))
+                .thenComparingInt(row -> row));
+        return rows.stream().limit(TOP_N).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static MarketDataBatch randomBatch(Random random, int size) {
+        List<MarketData> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            double previousClose = 0.5 + random.nextInt(20_000) / 100.0;
+            double price = previousClose * (1 + random.nextInt(100) / 1000.0 - 0.05);
+            long volume = random.nextInt(400_000);
+            // A third of the symbols haven't traded pre-market; the rest move in coarse steps
+            double movePercent = random.nextInt(3) == 0 ? 0.0 : (random.nextInt(101) - 50) / 10.0;
+            double preMarketPrice = movePercent == 0.0 && random.nextBoolean()
+                    ? 0.0
+                    : previousClose * (1 + movePercent / 100);
+            rows.add(new MarketData("S" + i, "Symbol " + i, previousClose, price, price - previousClose,
+                    (price / previousClose - 1) * 100, volume, preMarketPrice,
+                    preMarketPrice > 0 ? preMarketPrice - previousClose : 0.0,
+                    preMarketPrice > 0 ? movePercent : 0.0));
+        }
+        return MarketDataBatch.of(rows);
+    }
+}
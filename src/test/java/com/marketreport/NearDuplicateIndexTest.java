@@ -0,0 +1,83 @@
+package com.marketreport;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NearDuplicateIndexTest {
+    static final String FED_TITLE = "Fed holds rates steady as inflation cools";
+    static final String FED_DESCRIPTION = "The Federal Reserve left its benchmark rate unchanged on Wednesday, "
+            + "citing slower price growth and a resilient labor market.";
+    // The same story as syndicated elsewhere: recased, with a word dropped
+    static final String FED_COPY_TITLE = "Fed Holds Rates Steady as Inflation Cools";
+    static final String FED_COPY_DESCRIPTION = "The Federal Reserve left its benchmark rate unchanged Wednesday, "
+            + "citing slower price growth and a resilient labor market.";
+    static final String OIL_TITLE = "Oil slides on weak Chinese demand";
+    static final String OIL_DESCRIPTION = "Crude futures fell for a third session as refinery data from China "
+            + "pointed to softer consumption heading into the summer.";
+
+    @Test
+    public void nearDuplicatesHaveCloseFingerprints() {
+        long original = NearDuplicateIndex.fingerprint(FED_TITLE, FED_DESCRIPTION);
+        long copy = NearDuplicateIndex.fingerprint(FED_COPY_TITLE, FED_COPY_DESCRIPTION);
+        long other = NearDuplicateIndex.fingerprint(OIL_TITLE, OIL_DESCRIPTION);
+
+        assertTrue(Long.bitCount(original ^ copy) <= 6);
+        assertTrue(Long.bitCount(original ^ other) > 16);
+    }
+
+    @Test
+    public void clustersNearDuplicatesAndSeparatesDistinctStories() {
+        NearDuplicateIndex index = new NearDuplicateIndex(6);
+        int fed = index.cluster(NearDuplicateIndex.fingerprint(FED_TITLE, FED_DESCRIPTION));
+        int oil = index.cluster(NearDuplicateIndex.fingerprint(OIL_TITLE, OIL_DESCRIPTION));
+
+        assertNotEquals(fed, oil);
+        assertEquals(fed, index.cluster(NearDuplicateIndex.fingerprint(FED_COPY_TITLE, FED_COPY_DESCRIPTION)));
+        assertEquals(Integer.MIN_VALUE, index.bestScore(fed));
+        index.setBestScore(fed, 9);
+        assertEquals(9, index.bestScore(fed));
+        assertEquals(Integer.MIN_VALUE, index.bestScore(oil));
+    }
+
+    // The banded lookup must find exactly the clusters a linear scan over anchors would
+    @Test
+    public void bandedLookupMatchesALinearScan() {
+        Random random = new Random(11);
+        for (int maxDistance = 0; maxDistance <= 7; maxDistance++) {
+            NearDuplicateIndex index = new NearDuplicateIndex(maxDistance);
+            long[] anchors = new long[2_000];
+            int clusters = 0;
+            for (int i = 0; i < 5_000; i++) {
+                // Mostly small perturbations of earlier anchors, so many lookups hit
+                long fingerprint = clusters > 0 && random.nextInt(3) > 0
+                        ? flipBits(anchors[random.nextInt(clusters)], random.nextInt(10), random)
+                        : random.nextLong();
+
+                int expected = -1;
+                for (int c = 0; c < clusters && expected < 0; c++) {
+                    if (Long.bitCount(anchors[c] ^ fingerprint) <= maxDistance) expected = c;
+                }
+                int cluster = index.cluster(fingerprint);
+                if (expected < 0) {
+                    assertEquals(clusters, cluster);
+                    if (clusters < anchors.length) anchors[clusters++] = fingerprint;
+                    else return;
+                } else {
+                    assertTrue(Long.bitCount(anchors[cluster] ^ fingerprint) <= maxDistance);
+                }
+            }
+        }
+    }
+
+    private static long flipBits(long value, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            value ^= 1L << random.nextInt(64);
+        }
+        return value;
+    }
+}
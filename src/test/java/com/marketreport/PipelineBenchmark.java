@@ -0,0 +1,111 @@
+package com.marketreport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// End-to-end benchmark of fetch, selection, history and rendering against the
+// replay provider, so no live service is touched. Usage:
+//   mvn test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.marketreport.PipelineBenchmark -Dexec.args="[symbols...]"
+// Sizes default to 10, 1000 and 10000 symbols. BENCH_WARMUP sets the warmup
+// runs; measured runs default to about 10000 symbol fetches per size, between
+// 10 and 100 runs, so small sizes get a p99. BENCH_ITERATIONS fixes one count
+// for every size. The REPLAY_* and FETCH_* settings shape the simulated
+// providers and the fetch engine; the rate limit is lifted unless
+// FETCH_RATE_PER_SECOND is set, since replay has no host to protect.
+// Replay stands in for the whole HTTP layer: ResilientHttp (retries, hedging,
+// circuit breakers), OkHttp and its cache are not exercised, so neither their
+// overhead nor the live network's is in these numbers.
+public class PipelineBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineBenchmark.class);
+    // With fewer runs the p99 is just the slowest one, so only max is reported
+    private static final int MIN_P99_RUNS = 100;
+    private static final int MIN_RUNS = 10;
+    private static final int FETCHES_PER_SIZE = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> sizes = new ArrayList<>();
+        for (String arg : args) {
+            sizes.add(Integer.parseInt(arg));
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(10);
+            sizes.add(1_000);
+            sizes.add(10_000);
+        }
+        int warmup = Math.max(0, EnvConfig.getInt("BENCH_WARMUP", 2));
+        int fixedIterations = EnvConfig.getInt("BENCH_ITERATIONS", 0);
+        if (EnvConfig.getString("FETCH_RATE_PER_SECOND", null) == null) {
+            System.setProperty("FETCH_RATE_PER_SECOND", "1000000");
+        }
+
+        Path workDir = Files.createTempDirectory("pipeline-benchmark");
+        List<String> results = new ArrayList<>();
+        try (MorningReportGenerator generator = new MorningReportGenerator("replay", workDir.resolve("history"))) {
+            for (int size : sizes) {
+                int iterations = fixedIterations > 0 ? fixedIterations
+                        : Math.max(MIN_RUNS, Math.min(MIN_P99_RUNS, FETCHES_PER_SIZE / size));
+                results.add(run(generator, symbols(size), workDir.resolve("report.html"), warmup, iterations));
+            }
+        } finally {
+            deleteRecursively(workDir);
+        }
+
+        System.out.println();
+        System.out.printf("%8s %6s %10s %10s %10s %10s %10s %12s%n",
+                "symbols", "runs", "mean ms", "p50 ms", "p99 ms", "max ms", "reports/s", "symbols/s");
+        results.forEach(System.out::println);
+    }
+
+    private static String run(MorningReportGenerator generator, List<String> symbols, Path report, int warmup,
+                              int iterations) throws Exception {
+        logger.info("Benchmarking {} symbols: {} warmup and {} measured runs", symbols.size(), warmup, iterations);
+        for (int i = 0; i < warmup; i++) {
+            generator.buildReport(symbols, report);
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        long reportBytes = 0;
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            long runStart = System.nanoTime();
+            reportBytes += Files.size(generator.buildReport(symbols, report));
+            latency.record(System.nanoTime() - runStart);
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        logger.info("Rendered {} KB per report on average", reportBytes / iterations / 1024);
+
+        String p99 = iterations >= MIN_P99_RUNS ? String.format("%.1f", millis(latency.percentile(99))) : "-";
+        return String.format("%8d %6d %10.1f %10.1f %10s %10.1f %10.2f %12.0f",
+                symbols.size(), iterations, millis(latency.mean()), millis(latency.percentile(50)),
+                p99, millis(latency.max()),
+                iterations / elapsedSeconds, symbols.size() * iterations / elapsedSeconds);
+    }
+
+    private static List<String> symbols(int count) {
+        List<String> symbols = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            symbols.add(String.format("SYM%05d", i));
+        }
+        return symbols;
+    }
+
+    private static double millis(double nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
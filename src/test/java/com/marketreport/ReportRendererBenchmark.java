@@ -0,0 +1,103 @@
+package com.marketreport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Pre-market table rows rendered the way the report used to (a StringBuilder
+// with String.format per number, encoded to UTF-8 for the file) against
+// ReportRenderer's precompiled fragments streaming through an HtmlWriter.
+// Scores are rows per second; with -prof gc (the bench profile adds it)
+// gc.alloc.rate.norm is the bytes allocated per row.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportRendererBenchmark {
+    private static final int ROWS = 1000;
+
+    private final ReportRenderer renderer = new ReportRenderer();
+    private final OutputStream sink = OutputStream.nullOutputStream();
+    private final HtmlWriter writer = new HtmlWriter(sink);
+    private List<MarketData> marketData;
+    private MarketDataBatch batch;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(42);
+        marketData = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            double previousClose = 10 + random.nextDouble() * 490;
+            double price = previousClose * (1 + random.nextGaussian() * 0.02);
+            long volume = (long) Math.pow(10, 2 + random.nextDouble() * 8);
+            marketData.add(new MarketData(String.format("SYM%04d", i), "Company " + i + " Holdings Incorporated",
+                    previousClose, price, price - previousClose, (price / previousClose - 1) * 100, volume,
+                    0.0, 0.0, 0.0));
+        }
+        batch = MarketDataBatch.of(marketData);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void rowsStringFormat() throws IOException {
+        StringBuilder html = new StringBuilder();
+        for (MarketData data : marketData) {
+            String changeClass = data.change >= 0 ? "positive" : "negative";
+            String changeSymbol = data.change >= 0 ? "+" : "";
+
+            html.append("                <tr>\n")
+                .append("                    <td><strong>").append(data.symbol).append("</strong></td>\n")
+                .append("                    <td>").append(truncate(data.name, 40)).append("</td>\n")
+                .append("                    <td>$").append(String.format("%.2f", data.previousClose)).append("</td>\n")
+                .append("                    <td>$").append(String.format("%.2f", data.currentPrice)).append("</td>\n")
+                .append("                    <td class=\"").append(changeClass).append("\">").append(changeSymbol).append("$").append(String.format("%.2f", data.change)).append("</td>\n")
+                .append("                    <td class=\"").append(changeClass).append("\">").append(changeSymbol).append(String.format("%.2f", data.changePercent)).append("%</td>\n")
+                .append("                    <td>").append(formatVolume(data.volume)).append("</td>\n")
+                .append("                </tr>\n");
+        }
+        sink.write(html.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void rowsHtmlWriter() throws IOException {
+        for (int row = 0; row < batch.size(); row++) {
+            renderer.writeMarketRow(writer, batch, row);
+        }
+        writer.flush();
+    }
+
+    private static String truncate(String text, int maxLength) {
+        return text.length() > maxLength ? text.substring(0, maxLength) + "..." : text;
+    }
+
+    private static String formatVolume(long volume) {
+        if (volume >= 1_000_000_000) {
+            return String.format("%.1fB", volume / 1_000_000_000.0);
+        } else if (volume >= 1_000_000) {
+            return String.format("%.1fM", volume / 1_000_000.0);
+        } else if (volume >= 1_000) {
+            return String.format("%.1fK", volume / 1_000.0);
+        } else {
+            return String.valueOf(volume);
+        }
+    }
+}
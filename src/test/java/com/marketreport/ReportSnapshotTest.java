@@ -0,0 +1,176 @@
+package com.marketreport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReportSnapshotTest {
+    // 22:00 the evening before in New York
+    private static final long CREATED_AT = Instant.parse("2024-03-16T02:00:00Z").toEpochMilli();
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("snapshots");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void uncompressedSnapshotsRoundTrip() throws IOException {
+        assertRoundTrip(false);
+    }
+
+    @Test
+    public void compressedSnapshotsRoundTrip() throws IOException {
+        assertRoundTrip(true);
+    }
+
+    @Test
+    public void nullStringsStayNull() throws IOException {
+        ReportSnapshot snapshot = new ReportSnapshot(CREATED_AT,
+                Arrays.asList(quote("AAPL", null, 190.12, 192.5)),
+                Arrays.asList(new NewsHeadline(null, null, null, null, null, 0)));
+        for (boolean compress : new boolean[] {false, true}) {
+            ReportSnapshot read = ReportSnapshot.read(write("nulls-" + compress, snapshot.encode(compress)));
+            assertNull(read.marketData.get(0).name);
+            NewsHeadline headline = read.headlines.get(0);
+            assertNull(headline.title);
+            assertNull(headline.description);
+            assertNull(headline.source);
+            assertNull(headline.publishedAt);
+            assertNull(headline.url);
+        }
+    }
+
+    @Test
+    public void scanReadsOneRowFromAMappedFile() throws IOException {
+        ReportSnapshot snapshot = sample();
+        for (boolean compress : new boolean[] {false, true}) {
+            Path file = write("scan-" + compress, snapshot.encode(compress));
+            List<double[]> visits = new ArrayList<>();
+            assertTrue(ReportSnapshot.scan(file, "MSFT", (createdAt, price, changePercent, volume, preMarket) -> {
+                assertEquals(CREATED_AT, createdAt);
+                visits.add(new double[] {price, changePercent, volume, preMarket});
+            }));
+            MarketData msft = snapshot.marketData.get(1);
+            assertEquals(1, visits.size());
+            assertEquals(msft.currentPrice, visits.get(0)[0], 0.0);
+            assertEquals(msft.changePercent, visits.get(0)[1], 0.0);
+            assertEquals(msft.volume, visits.get(0)[2], 0.0);
+            assertEquals(msft.preMarketChangePercent, visits.get(0)[3], 0.0);
+
+            ReportSnapshot.QuoteVisitor unexpected = (createdAt, price, changePercent, volume, preMarket) ->
+                    fail("visited a row that doesn't match");
+            assertFalse(ReportSnapshot.scan(file, "TSLA", unexpected));
+            // In the string table, but only as a headline source
+            assertFalse(ReportSnapshot.scan(file, "Reuters", unexpected));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFilesThatAreNotSnapshots() throws IOException {
+        ReportSnapshot.read(write("not-a-snapshot", "<html></html>".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // SnapshotTool used to render the snapshot time in the JVM's zone instead of New York's
+    @Test
+    public void rendersSnapshotTimesInTheMarketZone() throws IOException {
+        TimeZone defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+        try {
+            ByteArrayOutputStream html = new ByteArrayOutputStream();
+            SnapshotTool.render(sample(), html);
+            String report = new String(html.toByteArray(), StandardCharsets.UTF_8);
+            assertTrue(report.contains("2024-03-15 22:00:00"));
+            assertFalse(report.contains("2024-03-16"));
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    private void assertRoundTrip(boolean compress) throws IOException {
+        ReportSnapshot snapshot = sample();
+        ReportSnapshot read = ReportSnapshot.read(write("round-trip-" + compress, snapshot.encode(compress)));
+
+        assertEquals(snapshot.createdAtMillis, read.createdAtMillis);
+        assertEquals(snapshot.marketData.size(), read.marketData.size());
+        for (int i = 0; i < snapshot.marketData.size(); i++) {
+            assertQuote(snapshot.marketData.get(i), read.marketData.get(i));
+        }
+        assertEquals(snapshot.headlines.size(), read.headlines.size());
+        for (int i = 0; i < snapshot.headlines.size(); i++) {
+            NewsHeadline expected = snapshot.headlines.get(i);
+            NewsHeadline actual = read.headlines.get(i);
+            assertEquals(expected.title, actual.title);
+            assertEquals(expected.description, actual.description);
+            assertEquals(expected.source, actual.source);
+            assertEquals(expected.publishedAt, actual.publishedAt);
+            assertEquals(expected.url, actual.url);
+            assertEquals(expected.relevanceScore, actual.relevanceScore);
+        }
+    }
+
+    private static void assertQuote(MarketData expected, MarketData actual) {
+        assertEquals(expected.symbol, actual.symbol);
+        assertEquals(expected.name, actual.name);
+        assertEquals(expected.previousClose, actual.previousClose, 0.0);
+        assertEquals(expected.currentPrice, actual.currentPrice, 0.0);
+        assertEquals(expected.change, actual.change, 0.0);
+        assertEquals(expected.changePercent, actual.changePercent, 0.0);
+        assertEquals(expected.volume, actual.volume);
+        assertEquals(expected.preMarketPrice, actual.preMarketPrice, 0.0);
+        assertEquals(expected.preMarketChange, actual.preMarketChange, 0.0);
+        assertEquals(expected.preMarketChangePercent, actual.preMarketChangePercent, 0.0);
+    }
+
+    private Path write(String name, byte[] bytes) throws IOException {
+        return Files.write(directory.resolve(name + ReportSnapshot.EXTENSION), bytes);
+    }
+
+    // Repeated strings, non-ASCII text and pre-market values, so every column is exercised
+    private static ReportSnapshot sample() {
+        MarketData msft = new MarketData("MSFT", "Microsoft Corporation", 410.0, 405.5, -4.5, -4.5 / 410 * 100,
+                21_000_000, 407.0, -3.0, -3.0 / 410 * 100);
+        return new ReportSnapshot(CREATED_AT,
+                Arrays.asList(quote("AAPL", "Apple Inc.", 190.12, 192.5), msft, quote("^GSPC", "S&P 500", 5100, 5123.4)),
+                Arrays.asList(
+                        new NewsHeadline("Fed holds rates", "Powell: “patience” — no cut yet", "Reuters",
+                                "2024-03-15T20:00:00Z", "https://example.com/fed", 6),
+                        new NewsHeadline("Apple rallies", "Apple Inc. shares climb", "Reuters",
+                                "2024-03-15T21:00:00Z", "https://example.com/aapl", 3)));
+    }
+
+    private static MarketData quote(String symbol, String name, double previousClose, double price) {
+        double change = price - previousClose;
+        return new MarketData(symbol, name, previousClose, price, change, change / previousClose * 100,
+                1_000_000, 0.0, 0.0, 0.0);
+    }
+}
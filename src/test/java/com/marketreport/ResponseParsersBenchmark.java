@@ -0,0 +1,120 @@
+package com.marketreport;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Tree parsing (the whole body as a String, then a Gson JsonObject, as the
+// providers used to do) against the streaming parsers, over provider
+// responses in src/test/resources/fixtures: a v8 chart and a 100-article
+// NewsAPI page. Run with -prof gc (the bench profile
+// does) for bytes allocated per parse.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParsersBenchmark {
+    private byte[] chart;
+    private byte[] news;
+
+    @Setup
+    public void load() throws IOException {
+        chart = fixture("yahoo-chart.json");
+        news = fixture("newsapi-everything.json");
+    }
+
+    static byte[] fixture(String name) throws IOException {
+        try (InputStream in = ResponseParsersBenchmark.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public MarketData chartTree() {
+        JsonObject response = JsonParser.parseString(new String(chart, StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonArray result = response.getAsJsonObject("chart").getAsJsonArray("result");
+        JsonObject meta = result.get(0).getAsJsonObject().getAsJsonObject("meta");
+        return treeQuote(meta, "AAPL");
+    }
+
+    @Benchmark
+    public MarketData chartStreaming() throws IOException {
+        try (JsonReader reader = reader(chart)) {
+            return ResponseParsers.parseYahooChart(reader, "AAPL");
+        }
+    }
+
+    @Benchmark
+    public void newsTree(Blackhole blackhole) {
+        JsonObject response = JsonParser.parseString(new String(news, StandardCharsets.UTF_8)).getAsJsonObject();
+        for (JsonElement element : response.getAsJsonArray("articles")) {
+            JsonObject article = element.getAsJsonObject();
+            blackhole.consume(treeString(article, "title"));
+            blackhole.consume(treeString(article, "description"));
+            blackhole.consume(article.getAsJsonObject("source").get("name").getAsString());
+            blackhole.consume(treeString(article, "publishedAt"));
+            blackhole.consume(treeString(article, "url"));
+        }
+    }
+
+    @Benchmark
+    public int newsStreaming(Blackhole blackhole) throws IOException {
+        try (JsonReader reader = reader(news)) {
+            return ResponseParsers.parseNewsArticles(reader, (title, description, source, publishedAt, url) -> {
+                blackhole.consume(title);
+                blackhole.consume(description);
+                blackhole.consume(source);
+                blackhole.consume(publishedAt);
+                blackhole.consume(url);
+            });
+        }
+    }
+
+    private static JsonReader reader(byte[] body) {
+        return new JsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+    }
+
+    private static MarketData treeQuote(JsonObject quote, String symbol) {
+        double currentPrice = quote.get("regularMarketPrice").getAsDouble();
+        double previousClose = quote.get("previousClose").getAsDouble();
+        double change = currentPrice - previousClose;
+        return new MarketData(symbol,
+                quote.has("longName") ? quote.get("longName").getAsString() : symbol,
+                previousClose, currentPrice, change, change / previousClose * 100,
+                quote.has("regularMarketVolume") ? quote.get("regularMarketVolume").getAsLong() : 0L,
+                quote.has("preMarketPrice") ? quote.get("preMarketPrice").getAsDouble() : 0.0,
+                quote.has("preMarketChange") ? quote.get("preMarketChange").getAsDouble() : 0.0,
+                quote.has("preMarketChangePercent") ? quote.get("preMarketChangePercent").getAsDouble() : 0.0);
+    }
+
+    private static String treeString(JsonObject object, String key) {
+        JsonElement element = object.get(key);
+        return element != null && !element.isJsonNull() ? element.getAsString() : "";
+    }
+}
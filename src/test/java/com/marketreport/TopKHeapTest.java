@@ -0,0 +1,72 @@
+package com.marketreport;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TopKHeapTest {
+
+    @Test
+    public void keepsTheBestKLikeASort() {
+        Random random = new Random(5);
+        for (int round = 0; round < 50; round++) {
+            int k = 1 + random.nextInt(20);
+            TopKHeap<Integer> heap = new TopKHeap<>(k, Comparator.<Integer>naturalOrder());
+            List<Integer> offered = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int value = random.nextInt(1_000);
+                offered.add(value);
+                heap.offer(value);
+            }
+            List<Integer> expected = offered.stream().sorted(Comparator.reverseOrder()).limit(k)
+                    .collect(Collectors.toList());
+            assertEquals(expected, heap.toSortedList());
+        }
+    }
+
+    @Test
+    public void tiesKeepTheEarlierOffer() {
+        TopKHeap<String> heap = new TopKHeap<>(2, Comparator.comparingInt(String::length));
+        assertTrue(heap.offer("aa"));
+        assertTrue(heap.offer("bb"));
+        assertFalse(heap.offer("cc"));
+        assertTrue(heap.offer("ddd"));
+        assertEquals(Arrays.asList("ddd", "aa"), heap.toSortedList());
+    }
+
+    @Test
+    public void tellsTheListenerAboutEvictionsOnly() {
+        List<Integer> evicted = new ArrayList<>();
+        TopKHeap<Integer> heap = new TopKHeap<>(2, Comparator.<Integer>naturalOrder(), evicted::add);
+        assertNull(heap.floor());
+        heap.offer(5);
+        heap.offer(3);
+        heap.offer(1); // rejected, not evicted
+        heap.offer(8);
+        assertEquals(Arrays.asList(3), evicted);
+        assertEquals(Integer.valueOf(5), heap.floor());
+        assertTrue(heap.isFull());
+    }
+
+    @Test
+    public void removesByIdentity() {
+        TopKHeap<String> heap = new TopKHeap<>(3, Comparator.<String>naturalOrder());
+        String item = new String("b");
+        heap.offer("a");
+        heap.offer(item);
+        assertFalse(heap.remove(new String("b")));
+        assertTrue(heap.remove(item));
+        assertEquals(1, heap.size());
+        assertFalse(heap.isFull());
+    }
+}
@@ -0,0 +1,89 @@
+package com.marketreport;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+// Quote fetches against a local chart endpoint through a caching client set up
+// like the live one, with a quote TTL far longer than the refresh interval.
+public class YahooMarketDataProviderTest {
+    private static final List<String> SYMBOLS = Collections.singletonList("AAPL");
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private File cacheDir;
+    private OkHttpClient client;
+    private FetchEngine fetchEngine;
+    private YahooMarketDataProvider provider;
+
+    @Before
+    public void start() throws IOException {
+        // Serves a higher price on every request, with the no-cache headers Yahoo sends
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v8/finance/chart/", exchange -> {
+            int hit = requests.incrementAndGet();
+            byte[] body = ("{\"chart\":{\"result\":[{\"meta\":{\"symbol\":\"AAPL\",\"regularMarketPrice\":"
+                    + (190 + hit) + ",\"previousClose\":190.0}}],\"error\":null}}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        String host = server.getAddress().getHostString();
+        cacheDir = Files.createTempDirectory("quote-cache").toFile();
+        client = new OkHttpClient.Builder()
+                .cache(new Cache(cacheDir, 1024 * 1024))
+                .addNetworkInterceptor(new CacheTtlInterceptor().withTtl(host, 300))
+                .build();
+        fetchEngine = new FetchEngine(2, 100.0, 10, 2);
+        provider = new YahooMarketDataProvider(fetchEngine, new ResilientHttp(client, fetchEngine, new RunMetrics()),
+                "http://" + host + ":" + server.getAddress().getPort());
+    }
+
+    @After
+    public void stop() throws IOException {
+        fetchEngine.close();
+        client.cache().delete();
+        server.stop(0);
+        Files.deleteIfExists(cacheDir.toPath());
+    }
+
+    @Test
+    public void quotesAreServedFromTheCacheWithinTheTtl() throws InterruptedException {
+        assertEquals(191.0, provider.fetchQuotes(SYMBOLS).get(0).currentPrice, 0.0);
+        assertEquals(191.0, provider.fetchQuotes(SYMBOLS).get(0).currentPrice, 0.0);
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void refreshesWithinTheTtlBothReachTheNetwork() throws InterruptedException {
+        provider.fetchQuotes(SYMBOLS);
+
+        assertEquals(192.0, provider.fetchFreshQuotes(SYMBOLS).get(0).currentPrice, 0.0);
+        assertEquals(193.0, provider.fetchFreshQuotes(SYMBOLS).get(0).currentPrice, 0.0);
+        assertEquals(3, requests.get());
+        // The refreshed response replaces the cached one
+        assertEquals(193.0, provider.fetchQuotes(SYMBOLS).get(0).currentPrice, 0.0);
+        assertEquals(3, requests.get());
+    }
+}